@@ -0,0 +1,139 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Measures {@link ChainedActionList#start(Context, Command, Command)} and
+ * {@link ChainPlan#start(Context, Command, Command)} for chains of varying
+ * length. Synchronous actions call <code>next</code> from within
+ * <code>execute</code>. Asynchronous actions put their continuation into a
+ * queue which is drained by the benchmark, standing in for the browser event
+ * loop.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainedActionListBenchmark
+{
+    static final Context.Key<Integer> COUNTER = new Context.Key<Integer>("counter");
+
+    @Param({"1", "10", "100", "1000"})
+    int length;
+
+    @Param({"true", "false"})
+    boolean async;
+
+    final Deque<Runnable> eventLoop = new ArrayDeque<Runnable>();
+    ChainedActionList list;
+    ChainPlan plan;
+    Context context;
+    Command done;
+    boolean finished;
+
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        ChainedAction[] actions = new ChainedAction[length];
+        for (int i = 0; i < length; i++)
+        {
+            actions[i] = async ? new AsyncAction() : new SyncAction();
+        }
+        list = new ChainedActionList(actions);
+        plan = list.compile();
+        context = new Context();
+        done = new Command()
+        {
+            @Override
+            public void execute()
+            {
+                finished = true;
+            }
+        };
+    }
+
+
+    @Benchmark
+    public void start(Blackhole blackhole)
+    {
+        finished = false;
+        context.put(COUNTER, 0);
+        blackhole.consume(list.start(context, done, done));
+        drain();
+        blackhole.consume(finished);
+    }
+
+
+    @Benchmark
+    public void startCompiled(Blackhole blackhole)
+    {
+        finished = false;
+        context.put(COUNTER, 0);
+        blackhole.consume(plan.start(context, done, done));
+        drain();
+        blackhole.consume(finished);
+    }
+
+
+    void drain()
+    {
+        Runnable task;
+        while ((task = eventLoop.poll()) != null)
+        {
+            task.run();
+        }
+    }
+
+    class SyncAction extends ChainedAction
+    {
+        @Override
+        public void execute(Iterator<ChainedAction> iterator, Context context, Command onSuccess, Command onError)
+        {
+            context.put(COUNTER, context.get(COUNTER) + 1);
+            next(iterator, context, onSuccess, onError);
+        }
+    }
+
+    class AsyncAction extends ChainedAction
+    {
+        @Override
+        public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+                final Command onError)
+        {
+            eventLoop.add(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    context.put(COUNTER, context.get(COUNTER) + 1);
+                    next(iterator, context, onSuccess, onError);
+                }
+            });
+        }
+    }
+}
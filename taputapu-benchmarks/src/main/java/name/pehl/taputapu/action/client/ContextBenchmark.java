@@ -0,0 +1,82 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the put / get throughput of {@link Context} using typed keys and
+ * string keys.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBenchmark
+{
+    static final int KEYS = 32;
+    static final Context.Key<?>[] TYPED_KEYS = new Context.Key<?>[KEYS];
+    static final String[] STRING_KEYS = new String[KEYS];
+
+    static
+    {
+        for (int i = 0; i < KEYS; i++)
+        {
+            TYPED_KEYS[i] = new Context.Key<Object>("key" + i);
+            STRING_KEYS[i] = "key" + i;
+        }
+    }
+
+    Context context;
+    Object value;
+
+
+    @Setup
+    public void setup()
+    {
+        context = new Context();
+        value = new Object();
+        for (int i = 0; i < KEYS; i++)
+        {
+            context.set(TYPED_KEYS[i], value);
+            context.put(STRING_KEYS[i], value);
+        }
+    }
+
+
+    @Benchmark
+    public void typedPutGet(Blackhole blackhole)
+    {
+        for (int i = 0; i < KEYS; i++)
+        {
+            context.set(TYPED_KEYS[i], value);
+            blackhole.consume(context.get(TYPED_KEYS[i]));
+        }
+    }
+
+
+    @Benchmark
+    public void stringPutGet(Blackhole blackhole)
+    {
+        for (int i = 0; i < KEYS; i++)
+        {
+            context.put(STRING_KEYS[i], value);
+            blackhole.consume(context.<Object> get(STRING_KEYS[i]));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package name.pehl.taputapu.timer.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Measures schedule / cancel churn on the {@link TimerRegistry} which backs
+ * {@link TimerService}. The benchmark drives the registry directly with a
+ * no-op owner, so it measures the bookkeeping without any timer backend. See
+ * {@link TimerServiceBenchmark} for the whole service. It keeps a window of
+ * <code>pending</code> timers alive and replaces the oldest one in each
+ * operation, which exercises slot reuse and generation checks.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerRegistryBenchmark
+{
+    @Param({"16", "1024", "65536"})
+    int pending;
+
+    TimerRegistry registry;
+    TimerRegistry.Owner owner;
+    Command command;
+    TimerHandle[] window;
+    int position;
+
+
+    @Setup
+    public void setup()
+    {
+        registry = new TimerRegistry();
+        owner = new TimerRegistry.Owner()
+        {
+            @Override
+            public void cancel(int slot)
+            {
+            }
+        };
+        command = new Command()
+        {
+            @Override
+            public void execute()
+            {
+            }
+        };
+        window = new TimerHandle[pending];
+        for (int i = 0; i < pending; i++)
+        {
+            window[i] = registry.register(owner, command);
+        }
+    }
+
+
+    @Benchmark
+    public void scheduleCancel(Blackhole blackhole)
+    {
+        TimerHandle oldest = window[position];
+        int slot = registry.lookup(oldest);
+        if (slot != -1)
+        {
+            registry.owner(slot).cancel(slot);
+            registry.release(slot);
+        }
+        window[position] = registry.register(owner, command);
+        position = (position + 1) % pending;
+        blackhole.consume(slot);
+    }
+
+
+    @Benchmark
+    public void staleLookup(Blackhole blackhole)
+    {
+        // cancel twice: the second lookup must fail because of the generation
+        TimerHandle oldest = window[position];
+        int slot = registry.lookup(oldest);
+        registry.release(slot);
+        blackhole.consume(registry.lookup(oldest));
+        window[position] = registry.register(owner, command);
+        position = (position + 1) % pending;
+    }
+}
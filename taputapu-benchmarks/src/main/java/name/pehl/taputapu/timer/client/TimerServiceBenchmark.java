@@ -0,0 +1,90 @@
+package name.pehl.taputapu.timer.client;
+
+import java.util.concurrent.TimeUnit;
+
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Measures schedule / cancel churn and firing on a {@link TimerService}
+ * running on a {@link VirtualTimerBackend}, once with one task per timer and
+ * once in timing wheel mode.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerServiceBenchmark
+{
+    @Param({"1024", "65536"})
+    int pending;
+
+    @Param({"0", "10"})
+    int tickMillis;
+
+    VirtualTimerBackend backend;
+    TimerService timerService;
+    Command command;
+    TimerHandle[] window;
+    int position;
+
+
+    @Setup
+    public void setup()
+    {
+        backend = new VirtualTimerBackend();
+        timerService = tickMillis > 0 ? new TimerService(tickMillis, backend) : new TimerService(backend);
+        command = new Command()
+        {
+            @Override
+            public void execute()
+            {
+            }
+        };
+        window = new TimerHandle[pending];
+        for (int i = 0; i < pending; i++)
+        {
+            window[i] = timerService.schedule(1000 + i, command);
+        }
+    }
+
+
+    @Benchmark
+    public void scheduleCancel(Blackhole blackhole)
+    {
+        blackhole.consume(timerService.cancel(window[position]));
+        window[position] = timerService.schedule(1000 + position, command);
+        position = (position + 1) % pending;
+    }
+
+
+    @Benchmark
+    public void scheduleFire(Blackhole blackhole)
+    {
+        // the new timer is due after one millisecond. With one task per timer
+        // it fires in this call, in timing wheel mode it waits for the next
+        // tick, so every tickMillis-th call fires the timers of the previous
+        // tickMillis calls.
+        timerService.schedule(1, command);
+        blackhole.consume(backend.advance(1));
+    }
+}
@@ -0,0 +1,351 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * {@link ChainedAction} which executes other actions according to a directed
+ * acyclic graph. Each node starts as soon as all of its dependencies are
+ * resolved, so independent branches run in parallel. Edges may carry a
+ * {@link Condition} which is evaluated against the {@link Context} when the
+ * source node has finished:
+ * 
+ * <pre>
+ * ActionGraph graph = new ActionGraph();
+ * ActionGraph.Node load = graph.add(loadFromCache);
+ * ActionGraph.Node fetch = graph.add(fetchFromServer).after(load, notCached);
+ * ActionGraph.Node render = graph.add(renderView).after(load, cached).after(fetch);
+ * new ChainedActionList(graph, ...).start(context, onSuccess, onError);
+ * </pre>
+ * 
+ * An edge is <em>active</em> if its source node was executed and its
+ * condition (if any) is true. Otherwise it is <em>dead</em>. A node waits
+ * until all incoming edges are resolved. Then it is executed if at least one
+ * incoming edge is active (or, after {@link Node#requireAll()}, if all
+ * incoming edges are active). Otherwise the node is skipped and all its
+ * outgoing edges are dead. Nodes without incoming edges are always executed.
+ * <p>
+ * The graph continues the chain once all nodes have been executed or
+ * skipped. The first error exits the chain with <code>onError</code>;
+ * callbacks of nodes which arrive after that are ignored. Only the first
+ * callback of each node counts, further callbacks of the same node are
+ * ignored as well.
+ * <p>
+ * Each node is executed with a {@linkplain #childIterator(Iterator, Command)
+ * child iterator}. Thus a node signals success by calling
+ * {@link #next(Iterator, Context, Command, Command)} and an error by calling
+ * {@link #exit(Context, Command)} with <code>onError</code>. Calling
+ * {@link #exit(Context, Command)} with <code>onSuccess</code> ends the whole
+ * chain.
+ * Nodes which become ready synchronously are executed in a loop, so large
+ * graphs of synchronous actions don't grow the stack.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ActionGraph extends ChainedAction
+{
+    private final List<Node> nodes;
+
+
+    public ActionGraph()
+    {
+        this.nodes = new ArrayList<Node>();
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Adds a new node to the graph. Use {@link Node#after(Node)} and
+     * {@link Node#after(Node, Condition)} to specify its dependencies.
+     * 
+     * @param action
+     *            the action executed by the node
+     * @return the new node
+     */
+    public Node add(ChainedAction action)
+    {
+        assert action != null;
+
+        Node node = new Node(nodes.size(), action);
+        nodes.add(node);
+        return node;
+    }
+
+
+    @Override
+    public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+            final Command onError)
+    {
+        if (nodes.isEmpty())
+        {
+            next(iterator, context, onSuccess, onError);
+        }
+        else
+        {
+            new Run(iterator, context, onSuccess, onError).start();
+        }
+    }
+
+    /**
+     * Condition for an edge, evaluated when the source node has finished.
+     */
+    public interface Condition
+    {
+        boolean evaluate(Context context);
+    }
+
+    /**
+     * A node of the graph.
+     */
+    public final class Node
+    {
+        final int index;
+        final ChainedAction action;
+        final List<Node> targets;
+        final List<Condition> conditions;
+        int incoming;
+        boolean requireAll;
+
+
+        Node(final int index, final ChainedAction action)
+        {
+            this.index = index;
+            this.action = action;
+            this.targets = new ArrayList<Node>();
+            this.conditions = new ArrayList<Condition>();
+        }
+
+
+        /**
+         * Adds an unconditional dependency.
+         * 
+         * @param node
+         *            a node which was added to the same graph before this
+         *            node
+         * @return this node
+         */
+        public Node after(Node node)
+        {
+            return after(node, null);
+        }
+
+
+        /**
+         * Adds a conditional dependency.
+         * 
+         * @param node
+         *            a node which was added to the same graph before this
+         *            node. This ensures the graph is acyclic.
+         * @param condition
+         *            the condition of the edge, <code>null</code> for an
+         *            unconditional edge.
+         * @return this node
+         */
+        public Node after(Node node, Condition condition)
+        {
+            if (node == null || node.getGraph() != ActionGraph.this || node.index >= index)
+            {
+                throw new IllegalArgumentException("Dependencies must be nodes added to the same graph before");
+            }
+            node.targets.add(this);
+            node.conditions.add(condition);
+            incoming++;
+            return this;
+        }
+
+
+        /**
+         * Executes this node only if all incoming edges are active.
+         * 
+         * @return this node
+         */
+        public Node requireAll()
+        {
+            requireAll = true;
+            return this;
+        }
+
+
+        ActionGraph getGraph()
+        {
+            return ActionGraph.this;
+        }
+    }
+
+    /**
+     * State of one execution of the graph.
+     */
+    final class Run
+    {
+        final Iterator<ChainedAction> iterator;
+        final Context context;
+        final Command onSuccess;
+        final Command onError;
+        final int[] unresolved;
+        final int[] active;
+        final boolean[] dead;
+        final boolean[] completed;
+        // ready nodes: index to execute or -(index + 1) to skip
+        final int[] ready;
+        int readyHead;
+        int readyTail;
+        int resolved;
+        boolean draining;
+        boolean done;
+
+
+        Run(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+                final Command onError)
+        {
+            this.iterator = iterator;
+            this.context = context;
+            this.onSuccess = onSuccess;
+            this.onError = onError;
+            int size = nodes.size();
+            this.unresolved = new int[size];
+            this.active = new int[size];
+            this.dead = new boolean[size];
+            this.completed = new boolean[size];
+            this.ready = new int[size];
+            for (Node node : nodes)
+            {
+                unresolved[node.index] = node.incoming;
+            }
+        }
+
+
+        void start()
+        {
+            for (Node node : nodes)
+            {
+                if (node.incoming == 0)
+                {
+                    ready[readyTail++] = node.index;
+                }
+            }
+            drain();
+        }
+
+
+        void drain()
+        {
+            if (draining)
+            {
+                return;
+            }
+            draining = true;
+            try
+            {
+                while (readyHead < readyTail && !done)
+                {
+                    int entry = ready[readyHead++];
+                    if (entry >= 0)
+                    {
+                        executeNode(nodes.get(entry));
+                    }
+                    else
+                    {
+                        resolve(nodes.get(-entry - 1), false);
+                    }
+                }
+            }
+            finally
+            {
+                draining = false;
+            }
+        }
+
+
+        void executeNode(final Node node)
+        {
+            Iterator<ChainedAction> childIterator = childIterator(iterator, new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    if (complete(node))
+                    {
+                        resolve(node, true);
+                        drain();
+                    }
+                }
+            });
+            node.action.execute(childIterator, context, new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    if (complete(node))
+                    {
+                        done = true;
+                        exit(context, onSuccess);
+                    }
+                }
+            }, new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    if (complete(node))
+                    {
+                        done = true;
+                        exit(context, onError);
+                    }
+                }
+            });
+        }
+
+
+        /**
+         * Marks <code>node</code> as completed.
+         * 
+         * @param node
+         * @return <code>true</code> for the first callback of the node while
+         *         the graph is running, <code>false</code> otherwise
+         */
+        boolean complete(final Node node)
+        {
+            if (done || completed[node.index])
+            {
+                return false;
+            }
+            completed[node.index] = true;
+            return true;
+        }
+
+
+        void resolve(final Node node, final boolean executed)
+        {
+            resolved++;
+            for (int i = 0; i < node.targets.size(); i++)
+            {
+                Node target = node.targets.get(i);
+                Condition condition = node.conditions.get(i);
+                if (executed && (condition == null || condition.evaluate(context)))
+                {
+                    active[target.index]++;
+                }
+                else
+                {
+                    dead[target.index] = true;
+                }
+                unresolved[target.index]--;
+                if (unresolved[target.index] == 0)
+                {
+                    boolean run = target.requireAll ? !dead[target.index] : active[target.index] > 0;
+                    ready[readyTail++] = run ? target.index : -target.index - 1;
+                }
+            }
+            if (resolved == nodes.size() && !done)
+            {
+                done = true;
+                next(iterator, context, onSuccess, onError);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package name.pehl.taputapu.action.client;
+
+/**
+ * Execution record of one {@link ChainedAction} collected by a
+ * {@link ChainTracer}.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ActionTrace
+{
+    private final int chain;
+    private final int index;
+    private final ChainedAction action;
+    private final double start;
+    private final double end;
+    private final Outcome outcome;
+    private final boolean async;
+
+
+    ActionTrace(final int chain, final int index, final ChainedAction action, final double start, final double end,
+            final Outcome outcome, final boolean async)
+    {
+        this.chain = chain;
+        this.index = index;
+        this.action = action;
+        this.start = start;
+        this.end = end;
+        this.outcome = outcome;
+        this.async = async;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "ActionTrace [chain=" + chain + ", index=" + index + ", duration=" + getDuration() + "ms, outcome="
+                + outcome + (async ? ", async" : ", sync") + "]";
+    }
+
+
+    /**
+     * @return the number of the chain execution this action belongs to.
+     *         Actions of the same call to
+     *         {@link ChainedActionList#start(Context, com.google.gwt.user.client.Command, com.google.gwt.user.client.Command)}
+     *         share the same number.
+     */
+    public int getChain()
+    {
+        return chain;
+    }
+
+
+    /**
+     * @return the position of the action in its {@link ChainedActionList}
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+
+    public ChainedAction getAction()
+    {
+        return action;
+    }
+
+
+    /**
+     * @return the time the action was started in milliseconds
+     */
+    public double getStart()
+    {
+        return start;
+    }
+
+
+    /**
+     * @return the time the action continued, exited or was canceled in
+     *         milliseconds
+     */
+    public double getEnd()
+    {
+        return end;
+    }
+
+
+    public double getDuration()
+    {
+        return end - start;
+    }
+
+
+    public Outcome getOutcome()
+    {
+        return outcome;
+    }
+
+
+    /**
+     * @return <code>true</code> if the action continued or exited after its
+     *         <code>execute</code> method had returned, <code>false</code> if
+     *         it did so synchronously.
+     */
+    public boolean isAsync()
+    {
+        return async;
+    }
+
+    /**
+     * How an action ended.
+     */
+    public enum Outcome
+    {
+        /**
+         * The action called <code>next</code>.
+         */
+        SUCCESS,
+
+        /**
+         * The action exited with <code>onError</code>.
+         */
+        ERROR,
+
+        /**
+         * The action exited with <code>onSuccess</code> before the end of the
+         * chain.
+         */
+        EXIT,
+
+        /**
+         * The chain was canceled or timed out while the action was running.
+         */
+        CANCELED
+    }
+}
@@ -0,0 +1,421 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Runs a {@link ChainedActionList} for every item of a collection with a
+ * bounded number of concurrent chains. Each item is represented by its own
+ * {@link Context}:
+ * 
+ * <pre>
+ * BatchRunner runner = new BatchRunner(saveRowChain, 4);
+ * runner.run(rowContexts, new BatchRunner.Listener()
+ * {
+ *     public void onProgress(BatchRunner.Batch batch)
+ *     {
+ *         progressBar.setProgress(batch.getCompleted(), batch.getTotal());
+ *     }
+ * 
+ *     public void onComplete(BatchRunner.Batch batch)
+ *     {
+ *         showErrors(batch.getFailures());
+ *     }
+ * });
+ * </pre>
+ * 
+ * An action which fails can put the cause into the context under
+ * {@link #ERROR} before it calls <code>onError</code>. The batch records a
+ * {@link Failure} with the position, the context and the cause for every
+ * item of a failed run.
+ * 
+ * If a group size greater than one is specified, several items are combined
+ * into one run of the chain. The chain then gets a fresh context which
+ * contains the contexts of the grouped items under {@link #ITEMS}, so a
+ * batching action can send them in one request. The outcome of such a run
+ * applies to all items of the group.
+ * <p>
+ * The chain is {@linkplain ChainedActionList#compile() compiled} once, so the
+ * runs reuse their internal objects.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class BatchRunner
+{
+    /**
+     * Key for the item contexts of a group if the group size is greater than
+     * one.
+     */
+    public static final Context.Key<List<Context>> ITEMS = new Context.Key<List<Context>>("batchItems");
+
+    /**
+     * Key for the cause of an error. Read from the context of a run when the
+     * chain exits with <code>onError</code>.
+     */
+    public static final Context.Key<Throwable> ERROR = new Context.Key<Throwable>("batchError");
+
+    private final ChainPlan plan;
+    private final int maxConcurrency;
+    private final int groupSize;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new runner which runs the chain once per item.
+     * 
+     * @param chain
+     *            the chain to run
+     * @param maxConcurrency
+     *            the maximal number of chains running at the same time
+     */
+    public BatchRunner(ChainedActionList chain, int maxConcurrency)
+    {
+        this(chain, maxConcurrency, 1);
+    }
+
+
+    /**
+     * Creates a new runner.
+     * 
+     * @param chain
+     *            the chain to run
+     * @param maxConcurrency
+     *            the maximal number of chains running at the same time
+     * @param groupSize
+     *            the number of items processed by one run of the chain
+     */
+    public BatchRunner(ChainedActionList chain, int maxConcurrency, int groupSize)
+    {
+        assert chain != null;
+
+        this.plan = chain.compile();
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.groupSize = Math.max(1, groupSize);
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Starts processing the items.
+     * 
+     * @param items
+     *            one context per item. Must not contain <code>null</code>!
+     * @param listener
+     *            optional listener for progress and completion
+     * @return the batch which can be used to query the results or to cancel
+     *         the processing
+     */
+    public Batch run(final Collection<Context> items, final Listener listener)
+    {
+        assert items != null;
+        List<Context> copy = new ArrayList<Context>(items);
+        // a null context would make the plan use its shared pooled context
+        assert !copy.contains(null) : "Item contexts must not be null";
+
+        Batch batch = new Batch(copy, listener);
+        if (batch.isComplete())
+        {
+            // nothing to do
+            if (listener != null)
+            {
+                listener.onComplete(batch);
+            }
+        }
+        else
+        {
+            batch.launch();
+        }
+        return batch;
+    }
+
+    /**
+     * Listener for the progress of a batch.
+     */
+    public interface Listener
+    {
+        /**
+         * Called after each run of the chain.
+         */
+        void onProgress(Batch batch);
+
+
+        /**
+         * Called once all items have been processed. Not called if the batch
+         * was canceled.
+         */
+        void onComplete(Batch batch);
+    }
+
+    /**
+     * An item whose run failed.
+     */
+    public static final class Failure
+    {
+        private final int index;
+        private final Context context;
+        private final Throwable error;
+
+
+        Failure(final int index, final Context context, final Throwable error)
+        {
+            this.index = index;
+            this.context = context;
+            this.error = error;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "Failure [index=" + index + ", error=" + error + "]";
+        }
+
+
+        /**
+         * @return the position of the item in the collection passed to
+         *         {@link BatchRunner#run(Collection, Listener)}
+         */
+        public int getIndex()
+        {
+            return index;
+        }
+
+
+        /**
+         * @return the context of the item
+         */
+        public Context getContext()
+        {
+            return context;
+        }
+
+
+        /**
+         * @return the cause stored under {@link BatchRunner#ERROR} in the
+         *         context of the run or <code>null</code> if the chain
+         *         didn't report one
+         */
+        public Throwable getError()
+        {
+            return error;
+        }
+    }
+
+    /**
+     * The processing of one collection of items.
+     */
+    public final class Batch
+    {
+        private final List<Context> items;
+        private final Listener listener;
+        private final int units;
+        private final int[] runs;
+        private final boolean[] finished;
+        private final List<Context> succeeded;
+        private final List<Context> failed;
+        private final List<Failure> failures;
+        private int nextUnit;
+        private int running;
+        private int completed;
+        private boolean launching;
+        private boolean canceled;
+
+
+        Batch(final List<Context> items, final Listener listener)
+        {
+            this.items = items;
+            this.listener = listener;
+            this.units = (items.size() + groupSize - 1) / groupSize;
+            this.runs = new int[units];
+            this.finished = new boolean[units];
+            this.succeeded = new ArrayList<Context>();
+            this.failed = new ArrayList<Context>();
+            this.failures = new ArrayList<Failure>();
+        }
+
+
+        /**
+         * Stops starting new chains and cancels the running ones.
+         */
+        public void cancel()
+        {
+            if (!canceled && !isComplete())
+            {
+                canceled = true;
+                for (int unit = 0; unit < nextUnit; unit++)
+                {
+                    if (!finished[unit])
+                    {
+                        plan.cancel(runs[unit]);
+                    }
+                }
+            }
+        }
+
+
+        /**
+         * @return the total number of items
+         */
+        public int getTotal()
+        {
+            return items.size();
+        }
+
+
+        /**
+         * @return the number of processed items
+         */
+        public int getCompleted()
+        {
+            return completed;
+        }
+
+
+        /**
+         * @return the contexts of the items which were processed successfully
+         */
+        public List<Context> getSucceeded()
+        {
+            return succeeded;
+        }
+
+
+        /**
+         * @return the contexts of the items which failed
+         */
+        public List<Context> getFailed()
+        {
+            return failed;
+        }
+
+
+        /**
+         * @return one failure per item which failed, in the order the runs
+         *         failed
+         */
+        public List<Failure> getFailures()
+        {
+            return failures;
+        }
+
+
+        public boolean isComplete()
+        {
+            return completed == items.size();
+        }
+
+
+        public boolean isCanceled()
+        {
+            return canceled;
+        }
+
+
+        // ----------------------------------------------------------- internals
+
+        void launch()
+        {
+            // Chains completing synchronously call back into launch(): the
+            // outer loop picks up the free capacity.
+            if (launching)
+            {
+                return;
+            }
+            launching = true;
+            try
+            {
+                while (!canceled && running < maxConcurrency && nextUnit < units)
+                {
+                    startUnit(nextUnit++);
+                }
+            }
+            finally
+            {
+                launching = false;
+            }
+        }
+
+
+        private void startUnit(final int unit)
+        {
+            final int from = unit * groupSize;
+            final int to = Math.min(from + groupSize, items.size());
+            final Context context;
+            if (groupSize == 1)
+            {
+                context = items.get(from);
+            }
+            else
+            {
+                context = new Context();
+                context.put(ITEMS, items.subList(from, to));
+            }
+            running++;
+            runs[unit] = plan.start(context, new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    done(unit, from, to, null);
+                }
+            }, new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    done(unit, from, to, context);
+                }
+            });
+            if (canceled && !finished[unit])
+            {
+                // canceled by an item of this run before its number was known
+                plan.cancel(runs[unit]);
+            }
+        }
+
+
+        /**
+         * @param failedContext
+         *            the context of the run if it failed, <code>null</code>
+         *            if it succeeded
+         */
+        private void done(final int unit, final int from, final int to, final Context failedContext)
+        {
+            if (canceled || finished[unit])
+            {
+                return;
+            }
+            finished[unit] = true;
+            running--;
+            if (failedContext == null)
+            {
+                succeeded.addAll(items.subList(from, to));
+            }
+            else
+            {
+                Throwable error = failedContext.get(ERROR);
+                for (int index = from; index < to; index++)
+                {
+                    failed.add(items.get(index));
+                    failures.add(new Failure(index, items.get(index), error));
+                }
+            }
+            completed += to - from;
+            if (listener != null)
+            {
+                listener.onProgress(this);
+                if (isComplete())
+                {
+                    listener.onComplete(this);
+                }
+            }
+            launch();
+        }
+    }
+}
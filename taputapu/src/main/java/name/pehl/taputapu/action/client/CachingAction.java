@@ -0,0 +1,369 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import name.pehl.taputapu.timer.client.GwtTimerBackend;
+import name.pehl.taputapu.timer.client.TimerBackend;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * {@link ChainedAction} which caches the results of another action. The
+ * results are the values the wrapped action puts into the {@link Context}
+ * using the <em>output</em> keys. They are cached per combination of the
+ * values of the <em>input</em> keys:
+ * 
+ * <pre>
+ * static final Context.Key&lt;String&gt; USER_ID = new Context.Key&lt;String&gt;(&quot;userId&quot;);
+ * static final Context.Key&lt;Permissions&gt; PERMISSIONS = new Context.Key&lt;Permissions&gt;(&quot;permissions&quot;);
+ * 
+ * ChainedAction loadPermissions = new CachingAction(new LoadPermissionsAction(), 
+ *     new Context.Key&lt;?&gt;[] {USER_ID}, new Context.Key&lt;?&gt;[] {PERMISSIONS}, 60000, 100);
+ * </pre>
+ * 
+ * On a cache hit the output values are copied into the context and the chain
+ * continues without executing the wrapped action. Entries expire after the
+ * time to live and the least recently used entry is evicted once the maximum
+ * number of entries is exceeded. Use {@link #invalidate(Context)} or
+ * {@link #invalidateAll()} to drop entries explicitly. The age of an entry is
+ * measured with the clock of a {@link TimerBackend}.
+ * <p>
+ * If the action is started again for the same inputs while an execution is
+ * still in flight, the second chain waits for the running execution instead
+ * of starting another one. Errors are not cached: all waiting chains exit
+ * with their <code>onError</code> command. If the chain which started the
+ * execution is canceled or times out, the execution is dropped and the
+ * wrapped action is executed again for the next waiting chain.
+ * <p>
+ * The wrapped action is executed with a
+ * {@linkplain #childIterator(Iterator, Command) child iterator} of the chain
+ * which started the execution. It signals success by calling
+ * {@link #next(Iterator, Context, Command, Command)} and an error by calling
+ * {@link #exit(Context, Command)} with <code>onError</code>. If it calls
+ * {@link #exit(Context, Command)} with <code>onSuccess</code>, all waiting
+ * chains end and nothing is cached.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class CachingAction extends ChainedAction
+{
+    private final ChainedAction action;
+    private final Context.Key<?>[] inputs;
+    private final Context.Key<?>[] outputs;
+    private final int ttlMillis;
+    private final TimerBackend backend;
+    private final Map<List<Object>, CacheEntry> cache;
+    private final Map<List<Object>, List<Waiter>> inFlight;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new instance whose entries never expire and which is not
+     * bounded in size.
+     * 
+     * @param action
+     *            the wrapped action
+     * @param inputs
+     *            the keys whose values identify a cache entry
+     * @param outputs
+     *            the keys whose values are cached
+     */
+    public CachingAction(ChainedAction action, Context.Key<?>[] inputs, Context.Key<?>[] outputs)
+    {
+        this(action, inputs, outputs, 0, 0);
+    }
+
+
+    /**
+     * Creates a new instance which uses the clock of {@link GwtTimerBackend}.
+     * 
+     * @param action
+     *            the wrapped action
+     * @param inputs
+     *            the keys whose values identify a cache entry
+     * @param outputs
+     *            the keys whose values are cached
+     * @param ttlMillis
+     *            the time to live of an entry in milliseconds. Values &lt;= 0
+     *            mean entries never expire.
+     * @param maxEntries
+     *            the maximal number of entries. Values &lt;= 0 mean no limit.
+     */
+    public CachingAction(ChainedAction action, Context.Key<?>[] inputs, Context.Key<?>[] outputs, int ttlMillis,
+            final int maxEntries)
+    {
+        this(action, inputs, outputs, ttlMillis, maxEntries, new GwtTimerBackend());
+    }
+
+
+    /**
+     * Creates a new instance.
+     * 
+     * @param action
+     *            the wrapped action
+     * @param inputs
+     *            the keys whose values identify a cache entry
+     * @param outputs
+     *            the keys whose values are cached
+     * @param ttlMillis
+     *            the time to live of an entry in milliseconds. Values &lt;= 0
+     *            mean entries never expire.
+     * @param maxEntries
+     *            the maximal number of entries. Values &lt;= 0 mean no limit.
+     * @param backend
+     *            the backend which provides the clock
+     */
+    public CachingAction(ChainedAction action, Context.Key<?>[] inputs, Context.Key<?>[] outputs, int ttlMillis,
+            final int maxEntries, TimerBackend backend)
+    {
+        assert action != null;
+        assert backend != null;
+
+        this.action = action;
+        this.inputs = inputs == null ? new Context.Key<?>[0] : inputs;
+        this.outputs = outputs == null ? new Context.Key<?>[0] : outputs;
+        this.ttlMillis = ttlMillis;
+        this.backend = backend;
+        this.cache = new LinkedHashMap<List<Object>, CacheEntry>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CacheEntry> eldest)
+            {
+                return maxEntries > 0 && size() > maxEntries;
+            }
+        };
+        this.inFlight = new HashMap<List<Object>, List<Waiter>>();
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    @Override
+    public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+            final Command onError)
+    {
+        List<Object> key = key(context);
+        CacheEntry entry = cache.get(key);
+        if (entry != null)
+        {
+            if (ttlMillis <= 0 || backend.currentTimeMillis() - entry.created < ttlMillis)
+            {
+                entry.copyTo(context);
+                next(iterator, context, onSuccess, onError);
+                return;
+            }
+            cache.remove(key);
+        }
+
+        Waiter waiter = new Waiter(iterator, context, onSuccess, onError);
+        List<Waiter> waiters = inFlight.get(key);
+        if (waiters != null)
+        {
+            waiters.add(waiter);
+            return;
+        }
+        List<Waiter> execution = new ArrayList<Waiter>();
+        execution.add(waiter);
+        start(key, execution);
+    }
+
+
+    /**
+     * Removes the entry for the input values in <code>context</code>.
+     * 
+     * @param context
+     */
+    public void invalidate(final Context context)
+    {
+        cache.remove(key(context));
+    }
+
+
+    /**
+     * Removes all entries.
+     */
+    public void invalidateAll()
+    {
+        cache.clear();
+    }
+
+
+    /**
+     * @return the number of cached entries (including expired entries which
+     *         haven't been requested since they expired)
+     */
+    public int size()
+    {
+        return cache.size();
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    /**
+     * Executes the wrapped action on behalf of the first waiter of
+     * <code>execution</code>.
+     */
+    private void start(final List<Object> key, final List<Waiter> execution)
+    {
+        inFlight.put(key, execution);
+        final Waiter owner = execution.get(0);
+        addCleanup(owner.iterator, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (inFlight.get(key) == execution)
+                {
+                    handOver(key, execution);
+                }
+            }
+        });
+
+        Iterator<ChainedAction> childIterator = childIterator(owner.iterator, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (inFlight.get(key) == execution)
+                {
+                    inFlight.remove(key);
+                    CacheEntry result = new CacheEntry(owner.context);
+                    cache.put(key, result);
+                    for (Waiter waiter : execution)
+                    {
+                        result.copyTo(waiter.context);
+                        next(waiter.iterator, waiter.context, waiter.onSuccess, waiter.onError);
+                    }
+                }
+            }
+        });
+        action.execute(childIterator, owner.context, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (inFlight.get(key) == execution)
+                {
+                    // ended the chain: the results are not cached
+                    inFlight.remove(key);
+                    for (Waiter waiter : execution)
+                    {
+                        exit(waiter.context, waiter.onSuccess);
+                    }
+                }
+            }
+        }, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (inFlight.get(key) == execution)
+                {
+                    inFlight.remove(key);
+                    for (Waiter waiter : execution)
+                    {
+                        exit(waiter.context, waiter.onError);
+                    }
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Called when the chain which started <code>execution</code> was canceled
+     * or timed out. The wrapped action may never call back in that case, so
+     * the execution is dropped and a new one is started for the waiting
+     * chains which are still running. Late callbacks of the dropped execution
+     * are ignored.
+     */
+    private void handOver(final List<Object> key, final List<Waiter> execution)
+    {
+        inFlight.remove(key);
+        List<Waiter> running = new ArrayList<Waiter>();
+        for (Waiter waiter : execution)
+        {
+            if (!isCanceled(waiter.iterator))
+            {
+                running.add(waiter);
+            }
+        }
+        if (!running.isEmpty())
+        {
+            start(key, running);
+        }
+    }
+
+
+    private List<Object> key(final Context context)
+    {
+        Object[] values = new Object[inputs.length];
+        for (int i = 0; i < inputs.length; i++)
+        {
+            values[i] = context.get(inputs[i]);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * The cached output values.
+     */
+    final class CacheEntry
+    {
+        final long created;
+        final Object[] values;
+
+
+        CacheEntry(final Context context)
+        {
+            this.created = backend.currentTimeMillis();
+            this.values = new Object[outputs.length];
+            for (int i = 0; i < outputs.length; i++)
+            {
+                values[i] = context.get(outputs[i]);
+            }
+        }
+
+
+        void copyTo(final Context context)
+        {
+            for (int i = 0; i < outputs.length; i++)
+            {
+                context.set(outputs[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * A chain waiting for an execution in flight.
+     */
+    static final class Waiter
+    {
+        final Iterator<ChainedAction> iterator;
+        final Context context;
+        final Command onSuccess;
+        final Command onError;
+
+
+        Waiter(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+                final Command onError)
+        {
+            this.iterator = iterator;
+            this.context = context;
+            this.onSuccess = onSuccess;
+            this.onError = onError;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import name.pehl.taputapu.timer.client.TimerHandle;
+import name.pehl.taputapu.timer.client.TimerService;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Handle returned by {@link ChainedActionList#start(Context, Command, Command)}
+ * which can be used to cancel a running chain. After {@link #cancel()} no
+ * further actions are started and neither <code>onSuccess</code> nor
+ * <code>onError</code> is called. Instead the cleanup commands registered
+ * using {@link #addCleanup(Command)} are executed.
+ * <p>
+ * Asynchronous actions can use
+ * {@link ChainedAction#isCanceled(Iterator)} to find out whether the chain
+ * was canceled in the meantime.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ChainHandle
+{
+    private final ChainIterator iterator;
+    private List<Command> cleanups;
+    private TimerService timerService;
+    private TimerHandle timeout;
+    private boolean canceled;
+    private boolean finished;
+    private boolean timedOut;
+
+
+    ChainHandle(final ChainIterator iterator)
+    {
+        this.iterator = iterator;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Cancels the chain and executes the cleanup commands. Has no effect if
+     * the chain has already finished or was canceled before.
+     * 
+     * @return <code>true</code> if the chain was running and has been
+     *         canceled, <code>false</code> otherwise.
+     */
+    public boolean cancel()
+    {
+        if (canceled || finished)
+        {
+            return false;
+        }
+        canceled = true;
+        cancelTimeout();
+        iterator.canceled();
+        if (cleanups != null)
+        {
+            for (Command cleanup : cleanups)
+            {
+                cleanup.execute();
+            }
+            cleanups.clear();
+        }
+        return true;
+    }
+
+
+    /**
+     * Registers a command which is executed when the chain is canceled or
+     * times out.
+     * 
+     * @param cleanup
+     */
+    public void addCleanup(final Command cleanup)
+    {
+        if (cleanup != null)
+        {
+            if (cleanups == null)
+            {
+                cleanups = new ArrayList<Command>();
+            }
+            cleanups.add(cleanup);
+        }
+    }
+
+
+    /**
+     * @return <code>true</code> if the chain was canceled or timed out.
+     */
+    public boolean isCanceled()
+    {
+        return canceled;
+    }
+
+
+    /**
+     * @return <code>true</code> if the chain was canceled because it exceeded
+     *         its timeout.
+     */
+    public boolean isTimedOut()
+    {
+        return timedOut;
+    }
+
+
+    /**
+     * @return <code>true</code> if either <code>onSuccess</code> or
+     *         <code>onError</code> has been called.
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    /**
+     * Prepares the handle for another run of a pooled iterator.
+     */
+    void reset()
+    {
+        canceled = false;
+        finished = false;
+        timedOut = false;
+        timerService = null;
+        timeout = null;
+        if (cleanups != null)
+        {
+            cleanups.clear();
+        }
+    }
+
+
+    /**
+     * Marks the chain as finished.
+     * 
+     * @return <code>true</code> if the chain was running, <code>false</code>
+     *         if it was canceled or has already finished. In the latter case
+     *         the final command must not be executed.
+     */
+    boolean finish()
+    {
+        if (canceled || finished)
+        {
+            return false;
+        }
+        finished = true;
+        cancelTimeout();
+        if (cleanups != null)
+        {
+            cleanups.clear();
+        }
+        return true;
+    }
+
+
+    void setTimeout(final TimerService timerService, final TimerHandle timeout)
+    {
+        this.timerService = timerService;
+        this.timeout = timeout;
+    }
+
+
+    private void cancelTimeout()
+    {
+        if (timeout != null)
+        {
+            timerService.cancel(timeout);
+            timeout = null;
+        }
+    }
+
+
+    /**
+     * Cancels the chain because of a timeout.
+     * 
+     * @param onError
+     *            executed after the cleanup commands
+     */
+    void timeout(final Command onError)
+    {
+        if (!canceled && !finished)
+        {
+            timedOut = true;
+            cancel();
+            onError.execute();
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import name.pehl.taputapu.action.client.ActionTrace.Outcome;
+import name.pehl.taputapu.timer.client.TimerService;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Iterator used by {@link ChainedActionList} which doubles as trampoline for
+ * the execution of the actions.
+ * <p>
+ * When an action calls {@link ChainedAction#next(Iterator, Context, Command, Command)}
+ * synchronously from within its
+ * {@link ChainedAction#execute(Iterator, Context, Command, Command)} method,
+ * the next action is not executed right away. Instead the continuation is
+ * recorded and picked up by the loop in {@link #proceed(Context, Command, Command)}
+ * once the current action returns. Thus a chain of synchronous actions runs
+ * in constant stack depth. A new loop is only started when an action calls
+ * <code>next</code> asynchronously, i.e. after its <code>execute</code>
+ * method has returned.
+ * <p>
+ * The actions don't get the iterator itself, but the {@link Cursor} of the
+ * current run. The cursor carries the number of the run and creates the
+ * commands passed to the actions as <code>onSuccess</code> and
+ * <code>onError</code>. They make sure the final commands are executed at
+ * most once and not at all after the chain was canceled. Iterators which
+ * belong to a {@link ChainPlan} are reused once their run has finished.
+ * Callbacks which arrive through the cursor of an earlier run are ignored,
+ * so a late or repeated callback can't advance or finish a later run.
+ * <p>
+ * If a {@link ChainTracer} is set, the iterator records the start and the
+ * outcome of each action. If a {@link ProgressListener} is set, the iterator
+ * journals the values written to the context and reports them per action.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+class ChainIterator implements Iterator<ChainedAction>
+{
+    private final ChainedAction[] actions;
+    private final ChainTracer tracer;
+    private final ProgressListener listener;
+    private final boolean observed;
+    private final ChainPlan plan;
+    private final ChainHandle handle;
+    private final Context pooledContext;
+    private final Command timeoutExit;
+    private Cursor cursor;
+    private Command onSuccess;
+    private Command onError;
+    private int run;
+    private int chain;
+    private int index;
+    private int current;
+    private double started;
+    private Context journaled;
+    private boolean running;
+    private boolean pending;
+    private Context pendingContext;
+    private Command pendingSuccess;
+    private Command pendingError;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new iterator.
+     * 
+     * @param actions
+     *            the actions. The array is not copied and must not be
+     *            modified.
+     * @param tracer
+     *            optional tracer
+     * @param listener
+     *            optional progress listener
+     * @param plan
+     *            the plan this iterator is pooled in or <code>null</code>
+     */
+    ChainIterator(final ChainedAction[] actions, final ChainTracer tracer, final ProgressListener listener,
+            final ChainPlan plan)
+    {
+        this.actions = actions;
+        this.tracer = tracer;
+        this.listener = listener;
+        this.observed = tracer != null || listener != null;
+        this.plan = plan;
+        this.handle = new ChainHandle(this);
+        this.pooledContext = plan != null ? new Context() : null;
+        this.run = -1;
+        this.timeoutExit = new Command()
+        {
+            @Override
+            public void execute()
+            {
+                // bypasses the error exit which refuses to run after the cancel
+                handle.timeout(onError);
+            }
+        };
+    }
+
+
+    // ------------------------------------------------------ iterator methods
+
+    public boolean hasNext()
+    {
+        return index < actions.length;
+    }
+
+
+    public ChainedAction next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        ChainedAction action = actions[index];
+        index++;
+        return action;
+    }
+
+
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
+    // ------------------------------------------------------------------- runs
+
+    /**
+     * Starts a new run.
+     * 
+     * @param run
+     *            identifier of the run, must not be negative
+     * @param context
+     * @param onSuccess
+     * @param onError
+     * @param timeoutMillis
+     *            the timeout for the whole chain. Values &lt;= 0 disable the
+     *            timeout.
+     * @param timerService
+     *            the timer service used for the timeout
+     * @return the handle of the run
+     */
+    ChainHandle start(final int run, final Context context, final Command onSuccess, final Command onError,
+            final int timeoutMillis, final TimerService timerService)
+    {
+        assert run >= 0;
+
+        this.run = run;
+        this.cursor = new Cursor(run);
+        this.onSuccess = onSuccess;
+        this.onError = onError;
+        this.index = 0;
+        this.current = -1;
+        this.chain = tracer != null ? tracer.nextChain() : 0;
+        handle.reset();
+        if (timerService != null && timeoutMillis > 0)
+        {
+            handle.setTimeout(timerService, timerService.schedule(timeoutMillis, timeoutExit));
+        }
+        proceed(context, cursor.success, cursor.error);
+        return handle;
+    }
+
+
+    ChainHandle getHandle()
+    {
+        return handle;
+    }
+
+
+    /**
+     * @return the number of the current run or -1 if the last run has
+     *         finished
+     */
+    int getRun()
+    {
+        return run;
+    }
+
+
+    /**
+     * @return the context reused by the runs of a {@link ChainPlan}
+     */
+    Context getPooledContext()
+    {
+        return pooledContext;
+    }
+
+
+    private void finish(final Outcome outcome, final Command command)
+    {
+        if (observed)
+        {
+            trace(outcome);
+        }
+        stopJournal();
+        if (handle.finish())
+        {
+            run = -1;
+            cursor = null;
+            command.execute();
+            onSuccess = null;
+            onError = null;
+            if (plan != null)
+            {
+                plan.release(this);
+            }
+        }
+    }
+
+
+    /**
+     * Called by the handle when the chain was canceled.
+     */
+    void canceled()
+    {
+        if (observed)
+        {
+            trace(Outcome.CANCELED);
+        }
+        stopJournal();
+        if (plan != null)
+        {
+            plan.discard(this);
+        }
+    }
+
+
+    // ------------------------------------------------------------ trampoline
+
+    /**
+     * Continues the chain with the next action or calls
+     * <code>onSuccess</code> if there are no more actions. Does nothing if the
+     * chain was canceled.
+     * 
+     * @param context
+     * @param onSuccess
+     * @param onError
+     */
+    void proceed(final Context context, final Command onSuccess, final Command onError)
+    {
+        if (handle.isCanceled())
+        {
+            return;
+        }
+        if (observed)
+        {
+            trace(Outcome.SUCCESS);
+        }
+        pendingContext = context;
+        pendingSuccess = onSuccess;
+        pendingError = onError;
+        pending = true;
+        if (running)
+        {
+            // called synchronously from an action: the loop below takes over
+            return;
+        }
+
+        running = true;
+        try
+        {
+            while (pending && !handle.isCanceled())
+            {
+                pending = false;
+                Context currentContext = pendingContext;
+                Command currentSuccess = pendingSuccess;
+                Command currentError = pendingError;
+                pendingContext = null;
+                pendingSuccess = null;
+                pendingError = null;
+                if (hasNext())
+                {
+                    ChainedAction action = next();
+                    if (observed)
+                    {
+                        current = index - 1;
+                        started = tracer != null ? tracer.now() : 0;
+                        if (listener != null)
+                        {
+                            startJournal(currentContext);
+                        }
+                    }
+                    action.execute(cursor, currentContext, currentSuccess, currentError);
+                }
+                else
+                {
+                    currentSuccess.execute();
+                }
+            }
+        }
+        finally
+        {
+            running = false;
+            pending = false;
+        }
+    }
+
+
+    // ------------------------------------------------------ tracing & progress
+
+    /**
+     * Records the outcome of the running action, if any.
+     * 
+     * @param outcome
+     */
+    private void trace(final Outcome outcome)
+    {
+        if (current != -1)
+        {
+            int finished = current;
+            current = -1;
+            if (tracer != null)
+            {
+                tracer.record(chain, finished, actions[finished], started, outcome, !running);
+            }
+            if (listener != null && journaled != null && (outcome == Outcome.SUCCESS || outcome == Outcome.EXIT))
+            {
+                listener.onActionFinished(actions[finished], finished, actions.length, journaled.takeDelta());
+            }
+        }
+    }
+
+
+    private void startJournal(final Context context)
+    {
+        if (journaled != context)
+        {
+            stopJournal();
+            journaled = context;
+        }
+        if (context != null)
+        {
+            context.startJournal();
+        }
+    }
+
+
+    private void stopJournal()
+    {
+        if (journaled != null)
+        {
+            journaled.stopJournal();
+            journaled = null;
+        }
+    }
+
+    /**
+     * The iterator and the final commands of one run which are handed to the
+     * actions. All callbacks check the run number and are ignored once the
+     * run has finished or the iterator serves another run.
+     */
+    final class Cursor implements Iterator<ChainedAction>
+    {
+        final int run;
+        final Command success;
+        final Command error;
+
+
+        Cursor(final int run)
+        {
+            this.run = run;
+            this.success = new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    if (isCurrent())
+                    {
+                        finish(Outcome.EXIT, onSuccess);
+                    }
+                }
+            };
+            this.error = new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    if (isCurrent())
+                    {
+                        finish(Outcome.ERROR, onError);
+                    }
+                }
+            };
+        }
+
+
+        public boolean hasNext()
+        {
+            return isCurrent() && ChainIterator.this.hasNext();
+        }
+
+
+        public ChainedAction next()
+        {
+            if (!isCurrent())
+            {
+                throw new NoSuchElementException();
+            }
+            return ChainIterator.this.next();
+        }
+
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+
+        /**
+         * @return <code>true</code> if this is the cursor of the running run
+         */
+        boolean isCurrent()
+        {
+            return run == getRun();
+        }
+
+
+        /**
+         * @see ChainIterator#proceed(Context, Command, Command)
+         */
+        void proceed(final Context context, final Command onSuccess, final Command onError)
+        {
+            if (isCurrent())
+            {
+                ChainIterator.this.proceed(context, onSuccess, onError);
+            }
+        }
+
+
+        /**
+         * @return <code>true</code> if the run was canceled or is over
+         */
+        boolean isCanceled()
+        {
+            return !isCurrent() || handle.isCanceled();
+        }
+
+
+        /**
+         * Registers a cleanup command with the handle of the run.
+         * 
+         * @return <code>false</code> if the run is over
+         */
+        boolean addCleanup(final Command cleanup)
+        {
+            if (isCurrent())
+            {
+                handle.addCleanup(cleanup);
+                return true;
+            }
+            return false;
+        }
+    }
+}
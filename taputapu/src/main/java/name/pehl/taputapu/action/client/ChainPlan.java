@@ -0,0 +1,177 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import name.pehl.taputapu.timer.client.TimerService;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Immutable, compiled form of a {@link ChainedActionList} created by
+ * {@link ChainedActionList#compile()}. Use a plan for chains which are
+ * started over and over again, e.g. in a polling loop.
+ * <p>
+ * A plan keeps a pool of cursors. Each cursor consists of the iterator over
+ * the actions, the {@link ChainHandle} and a {@link Context}. When a run
+ * finishes, its cursor is reset and put back into the pool. Thus restarting
+ * a hot chain only allocates the small objects which stamp the iterator and
+ * the commands passed to the actions with the number of the run. Callbacks
+ * with the stamp of an earlier run are ignored, so a late callback can't
+ * advance or finish the run which reuses the cursor. Cursors of canceled runs
+ * are not reused, since their asynchronous actions might still call back.
+ * <p>
+ * Since cursors are reused, runs are identified by the number returned from
+ * the start methods instead of a {@link ChainHandle}. Use
+ * {@link #cancel(int)} to cancel a run.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public final class ChainPlan
+{
+    private final ChainedAction[] actions;
+    private final int timeoutMillis;
+    private final TimerService timerService;
+    private final ChainTracer tracer;
+    private final ProgressListener progressListener;
+    private final List<ChainIterator> pool;
+    private final List<ChainIterator> active;
+    private int nextRun;
+
+
+    ChainPlan(final ChainedAction[] actions, final int timeoutMillis, final TimerService timerService,
+            final ChainTracer tracer, final ProgressListener progressListener)
+    {
+        this.actions = actions;
+        this.timeoutMillis = timeoutMillis;
+        this.timerService = timerService;
+        this.tracer = tracer;
+        this.progressListener = progressListener;
+        this.pool = new ArrayList<ChainIterator>();
+        this.active = new ArrayList<ChainIterator>();
+        this.nextRun = 1;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Starts a new run with a pooled {@link Context} which is cleared before
+     * the run. The context is only visible to the actions.
+     * 
+     * @param onSuccess
+     *            Command which is called after the last action has finished or
+     *            when {@link ChainedAction#exit(Context, Command)} was called.
+     *            Must not be null!
+     * @param onError
+     *            Command which can be used to report an error. If
+     *            <code>null</code> <code>onSuccess</code> is used.
+     * @return the number of the run
+     */
+    public int start(final Command onSuccess, final Command onError)
+    {
+        return start(null, onSuccess, onError);
+    }
+
+
+    /**
+     * Starts a new run.
+     * 
+     * @param context
+     *            Context for sharing data between {@link ChainedAction}s. If
+     *            <code>null</code> a pooled context is used.
+     * @param onSuccess
+     *            Command which is called after the last action has finished or
+     *            when {@link ChainedAction#exit(Context, Command)} was called.
+     *            Must not be null!
+     * @param onError
+     *            Command which can be used to report an error. If
+     *            <code>null</code> <code>onSuccess</code> is used.
+     * @return the number of the run
+     */
+    public int start(final Context context, final Command onSuccess, final Command onError)
+    {
+        assert onSuccess != null;
+
+        ChainIterator iterator;
+        if (pool.isEmpty())
+        {
+            iterator = new ChainIterator(actions, tracer, progressListener, this);
+        }
+        else
+        {
+            iterator = pool.remove(pool.size() - 1);
+        }
+        active.add(iterator);
+        Context runContext = context;
+        if (runContext == null)
+        {
+            runContext = iterator.getPooledContext();
+            runContext.clear();
+        }
+        int run = nextRun++;
+        iterator.start(run, runContext, onSuccess, onError == null ? onSuccess : onError, timeoutMillis,
+                timerService);
+        return run;
+    }
+
+
+    /**
+     * Cancels the specified run.
+     * 
+     * @see ChainHandle#cancel()
+     * @param run
+     *            the number returned by one of the start methods
+     * @return <code>true</code> if the run was active and has been canceled,
+     *         <code>false</code> otherwise.
+     */
+    public boolean cancel(final int run)
+    {
+        for (int i = 0; i < active.size(); i++)
+        {
+            ChainIterator iterator = active.get(i);
+            if (iterator.getRun() == run)
+            {
+                return iterator.getHandle().cancel();
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @return the number of runs which are in progress
+     */
+    public int getActiveRuns()
+    {
+        return active.size();
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    /**
+     * Puts the cursor of a finished run back into the pool.
+     * 
+     * @param iterator
+     */
+    void release(final ChainIterator iterator)
+    {
+        if (active.remove(iterator))
+        {
+            pool.add(iterator);
+        }
+    }
+
+
+    /**
+     * Drops the cursor of a canceled run.
+     * 
+     * @param iterator
+     */
+    void discard(final ChainIterator iterator)
+    {
+        active.remove(iterator);
+    }
+}
@@ -0,0 +1,191 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import name.pehl.taputapu.action.client.ActionTrace.Outcome;
+import name.pehl.taputapu.timer.client.GwtTimerBackend;
+import name.pehl.taputapu.timer.client.TimerBackend;
+
+/**
+ * Collects timing information about the actions of one or more
+ * {@link ChainedActionList}s. Register a tracer using
+ * {@link ChainedActionList#setTracer(ChainTracer)}. Without a tracer the
+ * chain only pays for a <code>null</code> check per action.
+ * <p>
+ * The tracer keeps the most recent records in a ring buffer of fixed
+ * capacity. The records are stored in parallel arrays and
+ * {@link ActionTrace} instances are only created by {@link #dump()} or if a
+ * {@link Listener} is registered.
+ * <p>
+ * The times are taken from the
+ * {@linkplain TimerBackend#highResolutionTimeMillis() high resolution clock}
+ * of a {@link TimerBackend}, so short synchronous actions don't end up with a
+ * duration of 0. Pass a backend of the timer service to trace chains on the
+ * JVM.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ChainTracer
+{
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final TimerBackend backend;
+    private final int[] chains;
+    private final int[] indices;
+    private final ChainedAction[] actions;
+    private final double[] starts;
+    private final double[] ends;
+    private final int[] outcomes;
+    private final boolean[] async;
+    private int head;
+    private int size;
+    private int nextChain;
+    private Listener listener;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new tracer which uses the clock of {@link GwtTimerBackend}.
+     * 
+     * @param capacity
+     *            the maximal number of records kept in the ring buffer
+     */
+    public ChainTracer(final int capacity)
+    {
+        this(capacity, new GwtTimerBackend());
+    }
+
+
+    /**
+     * Creates a new tracer.
+     * 
+     * @param capacity
+     *            the maximal number of records kept in the ring buffer
+     * @param backend
+     *            the backend which provides the clock
+     */
+    public ChainTracer(final int capacity, final TimerBackend backend)
+    {
+        assert capacity > 0;
+        assert backend != null;
+
+        this.backend = backend;
+        chains = new int[capacity];
+        indices = new int[capacity];
+        actions = new ChainedAction[capacity];
+        starts = new double[capacity];
+        ends = new double[capacity];
+        outcomes = new int[capacity];
+        async = new boolean[capacity];
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Returns the records in the ring buffer, oldest first.
+     * 
+     * @return the records
+     */
+    public List<ActionTrace> dump()
+    {
+        List<ActionTrace> traces = new ArrayList<ActionTrace>(size);
+        int first = (head - size + chains.length) % chains.length;
+        for (int i = 0; i < size; i++)
+        {
+            traces.add(trace((first + i) % chains.length));
+        }
+        return traces;
+    }
+
+
+    /**
+     * Removes all records from the ring buffer.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < actions.length; i++)
+        {
+            actions[i] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+
+    /**
+     * @return the number of records in the ring buffer
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Registers a listener which is notified about every new record.
+     * 
+     * @param listener
+     *            the listener or <code>null</code> to remove the current one
+     */
+    public void setListener(final Listener listener)
+    {
+        this.listener = listener;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    double now()
+    {
+        return backend.highResolutionTimeMillis();
+    }
+
+
+    int nextChain()
+    {
+        return nextChain++;
+    }
+
+
+    void record(final int chain, final int index, final ChainedAction action, final double start,
+            final Outcome outcome, final boolean async)
+    {
+        int slot = head;
+        chains[slot] = chain;
+        indices[slot] = index;
+        actions[slot] = action;
+        starts[slot] = start;
+        ends[slot] = now();
+        outcomes[slot] = outcome.ordinal();
+        this.async[slot] = async;
+        head = (head + 1) % chains.length;
+        if (size < chains.length)
+        {
+            size++;
+        }
+        if (listener != null)
+        {
+            listener.onTrace(trace(slot));
+        }
+    }
+
+
+    private ActionTrace trace(final int slot)
+    {
+        return new ActionTrace(chains[slot], indices[slot], actions[slot], starts[slot], ends[slot],
+                OUTCOMES[outcomes[slot]], async[slot]);
+    }
+
+    /**
+     * Listener which is notified about every new record, e.g. to send it to a
+     * monitoring service.
+     */
+    public interface Listener
+    {
+        void onTrace(ActionTrace trace);
+    }
+}
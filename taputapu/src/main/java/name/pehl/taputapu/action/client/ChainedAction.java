@@ -0,0 +1,166 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.Iterator;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Class to execute one distinct action part of a {@link ChainedActionList}. The
+ * underlying action has to be defined by overwriting the method
+ * {@link #execute(Iterator, Context, Command, Command)}. At the end of this
+ * method subclasses must either call
+ * {@link #next(Iterator, Context, Command, Command)} to continue with the next
+ * action or {@link #exit(Context, Command)} to cancel the execution of the
+ * actions.
+ * <p>
+ * Used in GWT this enables the sequential execution of several asynchronous
+ * actions.
+ * 
+ * @see ChainedActionList
+ * @author $Author$
+ * @version $Date$ $Revision:
+ *          81886 $
+ */
+public abstract class ChainedAction
+{
+    /**
+     * Overwrite to specify the underlying action. At the end of this method
+     * subclasses must either call
+     * {@link #next(Iterator, Context, Command, Command)} to continue with the
+     * next action or {@link #exit(Context, Command)} to cancel the execution of
+     * the actions.
+     * 
+     * @param iterator
+     *            The iterator over the {@link ChainedActionList}
+     * @param context
+     *            Shared context between actions of a {@link ChainedActionList}
+     * @param onSuccess
+     *            Command which is called after the last action has finished.
+     * @param onError
+     *            Command which can be used to report an error.
+     */
+    public abstract void execute(final Iterator<ChainedAction> iterator, final Context context,
+            final Command onSuccess, final Command onError);
+
+
+    /**
+     * Starts the next action. Calls {@link #exit(Context, Command)} with the
+     * <code>onSuccess</code> command if this is the last action.
+     * <p>
+     * If the iterator was provided by a {@link ChainedActionList}, calls from
+     * within {@link #execute(Iterator, Context, Command, Command)} don't nest:
+     * the next action is started after the current action has returned.
+     * Long chains of synchronous actions therefore don't grow the stack.
+     * 
+     * @param iterator
+     *            The iterator over the {@link ChainedActionList}
+     * @param context
+     *            Shared context between actions of a {@link ChainedActionList}
+     * @param onSuccess
+     *            Command which is called after the last action has finished.
+     * @param onError
+     *            Command which can be used to report an error.
+     */
+    public final void next(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+            final Command onError)
+    {
+        if (iterator instanceof ChainIterator.Cursor)
+        {
+            ((ChainIterator.Cursor) iterator).proceed(context, onSuccess, onError);
+        }
+        else if (iterator instanceof ChildIterator)
+        {
+            ((ChildIterator) iterator).proceed();
+        }
+        else if (iterator.hasNext())
+        {
+            ChainedAction nextAction = iterator.next();
+            nextAction.execute(iterator, context, onSuccess, onError);
+        }
+        else
+        {
+            exit(context, onSuccess);
+        }
+    }
+
+
+    /**
+     * Returns whether the chain which belongs to <code>iterator</code> was
+     * canceled using {@link ChainHandle#cancel()} or timed out. Asynchronous
+     * actions can use this method to skip work whose result is no longer
+     * needed.
+     * 
+     * @param iterator
+     *            The iterator over the {@link ChainedActionList}
+     * @return <code>true</code> if the chain was canceled or the run of a
+     *         {@link ChainPlan} the iterator belongs to is over,
+     *         <code>false</code> otherwise or if the iterator doesn't belong
+     *         to a {@link ChainedActionList}. Iterators created by
+     *         {@link #childIterator(Iterator, Command)} belong to the chain
+     *         of their parent.
+     */
+    public final boolean isCanceled(final Iterator<ChainedAction> iterator)
+    {
+        Iterator<ChainedAction> root = ChildIterator.root(iterator);
+        return root instanceof ChainIterator.Cursor && ((ChainIterator.Cursor) root).isCanceled();
+    }
+
+
+    /**
+     * Returns the iterator for an action which this action executes on behalf
+     * of the chain, e.g. a wrapped action or a parallel child. When the child
+     * calls {@link #next(Iterator, Context, Command, Command)} with this
+     * iterator, <code>onContinue</code> is executed (at most once) instead of
+     * the next action of the chain. {@link #exit(Context, Command)} keeps its
+     * meaning: pass the <code>onSuccess</code> and <code>onError</code>
+     * commands of this action (or commands which end up calling them) to the
+     * child, so the child can end the chain. {@link #isCanceled(Iterator)}
+     * with the returned iterator reports a cancel of the chain of
+     * <code>iterator</code>.
+     * 
+     * @param iterator
+     *            The iterator passed to this action
+     * @param onContinue
+     *            Command which is executed when the child continues
+     * @return the iterator for the child
+     */
+    protected final Iterator<ChainedAction> childIterator(final Iterator<ChainedAction> iterator,
+            final Command onContinue)
+    {
+        return new ChildIterator(iterator, onContinue);
+    }
+
+
+    /**
+     * Registers a command which is executed if the chain which belongs to
+     * <code>iterator</code> is canceled or times out before it has finished.
+     * Actions which keep state beyond their own execution use this to clean
+     * up after a cancel.
+     * 
+     * @param iterator
+     *            The iterator passed to this action
+     * @param cleanup
+     *            Command which is executed on cancel
+     * @return <code>true</code> if the command was registered,
+     *         <code>false</code> if the iterator doesn't belong to a
+     *         {@link ChainedActionList} or its run is over
+     */
+    protected final boolean addCleanup(final Iterator<ChainedAction> iterator, final Command cleanup)
+    {
+        Iterator<ChainedAction> root = ChildIterator.root(iterator);
+        return root instanceof ChainIterator.Cursor && ((ChainIterator.Cursor) root).addCleanup(cleanup);
+    }
+
+
+    /**
+     * Calls the {@link Command#execute()} method of the specified command.
+     * 
+     * @param context
+     *            Shared context between actions of a {@link ChainedActionList}
+     * @param command
+     */
+    public final void exit(final Context context, final Command command)
+    {
+        command.execute();
+    }
+}
@@ -1,9 +1,8 @@
 package name.pehl.taputapu.action.client;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
+
+import name.pehl.taputapu.timer.client.TimerService;
 
 import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.rpc.AsyncCallback;
@@ -85,13 +84,32 @@ import com.google.gwt.user.client.rpc.AsyncCallback;
  * 
  * </pre>
  * 
+ * The start methods return a {@link ChainHandle} which can be used to cancel
+ * the running chain. Using {@link #setTimeout(int, TimerService)} the whole
+ * chain can be limited in time: if it doesn't finish within the timeout, it is
+ * canceled and <code>onError</code> is called. To limit or retry single
+ * actions use {@link TimeoutAction} and {@link RetryAction}.
+ * <p>
+ * To find out which actions are slow, register a {@link ChainTracer} using
+ * {@link #setTracer(ChainTracer)}. To render partial results as soon as the
+ * action producing them has finished, register a {@link ProgressListener}
+ * using {@link #setProgressListener(ProgressListener)}.
+ * <p>
+ * Chains which are started very often (e.g. in a polling loop) should be
+ * {@linkplain #compile() compiled} into a {@link ChainPlan}, which reuses its
+ * internal objects between runs.
+ * 
  * @author $Author$
  * @version $Date$ $Revision:
  *          81886 $
  */
 public class ChainedActionList
 {
-    private List<ChainedAction> actions;
+    private final ChainedAction[] actions;
+    private int timeoutMillis;
+    private TimerService timerService;
+    private ChainTracer tracer;
+    private ProgressListener progressListener;
 
 
     // ----------------------------------------------------------- constructors
@@ -103,10 +121,14 @@ public class ChainedActionList
      */
     public ChainedActionList(ChainedAction... actions)
     {
-        this.actions = new ArrayList<ChainedAction>();
         if (actions != null)
         {
-            this.actions.addAll(Arrays.asList(actions));
+            this.actions = new ChainedAction[actions.length];
+            System.arraycopy(actions, 0, this.actions, 0, actions.length);
+        }
+        else
+        {
+            this.actions = new ChainedAction[0];
         }
     }
 
@@ -124,10 +146,11 @@ public class ChainedActionList
      *            Command which is called after the last action has finished or
      *            when {@link ChainedAction#exit(Command)} was called. Must not
      *            be null!
+     * @return a handle to cancel the chain
      */
-    public final void start(final Command command)
+    public final ChainHandle start(final Command command)
     {
-        start(new Context(), command, command);
+        return start(new Context(), command, command);
     }
 
 
@@ -144,10 +167,11 @@ public class ChainedActionList
      *            Command which is called after the last action has finished or
      *            when {@link ChainedAction#exit(Command)} was called. Must not
      *            be null!
+     * @return a handle to cancel the chain
      */
-    public final void start(final Context context, final Command command)
+    public final ChainHandle start(final Context context, final Command command)
     {
-        start(context, command, command);
+        return start(context, command, command);
     }
 
 
@@ -166,10 +190,11 @@ public class ChainedActionList
      * @param onError
      *            Command which can be used to report an error. If
      *            <code>null</code> <code>onSuccess</code> is used.
+     * @return a handle to cancel the chain
      */
-    public final void start(final Command onSuccess, final Command onError)
+    public final ChainHandle start(final Command onSuccess, final Command onError)
     {
-        start(new Context(), onSuccess, onError);
+        return start(new Context(), onSuccess, onError);
     }
 
 
@@ -186,20 +211,72 @@ public class ChainedActionList
      * @param onError
      *            Command which can be used to report an error. If
      *            <code>null</code> <code>onSuccess</code> is used.
+     * @return a handle to cancel the chain
      */
-    public final void start(final Context context, final Command onSuccess, final Command onError)
+    public final ChainHandle start(final Context context, final Command onSuccess, final Command onError)
     {
         assert onSuccess != null;
 
-        if (actions.isEmpty())
-        {
-            onSuccess.execute();
-        }
-        else
-        {
-            Iterator<ChainedAction> iterator = actions.iterator();
-            ChainedAction firstAction = iterator.next();
-            firstAction.execute(iterator, context, onSuccess, onError == null ? onSuccess : onError);
-        }
+        ChainIterator iterator = new ChainIterator(actions, tracer, progressListener, null);
+        return iterator.start(0, context, onSuccess, onError == null ? onSuccess : onError, timeoutMillis,
+                timerService);
+    }
+
+
+    /**
+     * Compiles this list into an immutable {@link ChainPlan}. The plan uses
+     * the actions, the timeout, the tracer and the progress listener as
+     * configured at the time of this call.
+     * 
+     * @return the plan
+     */
+    public ChainPlan compile()
+    {
+        return new ChainPlan(actions, timeoutMillis, timerService, tracer, progressListener);
+    }
+
+
+    // ------------------------------------------------------------- properties
+
+    /**
+     * Limits the time the whole chain may take. If the chain doesn't finish
+     * within <code>timeoutMillis</code>, it is canceled (see
+     * {@link ChainHandle#cancel()}) and <code>onError</code> is called.
+     * 
+     * @param timeoutMillis
+     *            the timeout in milliseconds. Values &lt;= 0 disable the
+     *            timeout.
+     * @param timerService
+     *            the timer service used to schedule the timeout
+     */
+    public void setTimeout(final int timeoutMillis, final TimerService timerService)
+    {
+        this.timeoutMillis = timeoutMillis;
+        this.timerService = timerService;
+    }
+
+
+    /**
+     * Sets a tracer which records the timing and outcome of every action.
+     * 
+     * @param tracer
+     *            the tracer or <code>null</code> to disable tracing
+     */
+    public void setTracer(final ChainTracer tracer)
+    {
+        this.tracer = tracer;
+    }
+
+
+    /**
+     * Sets a listener which is notified about every action that finished
+     * successfully, together with the values it wrote into the context.
+     * 
+     * @param progressListener
+     *            the listener or <code>null</code> to remove the current one
+     */
+    public void setProgressListener(final ProgressListener progressListener)
+    {
+        this.progressListener = progressListener;
     }
 }
@@ -0,0 +1,92 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Iterator for actions which another action executes on behalf of the chain,
+ * e.g. the wrapped action of a {@link TimeoutAction} or the children of a
+ * {@link ParallelAction}. Created by
+ * {@link ChainedAction#childIterator(Iterator, Command)}.
+ * <p>
+ * The iterator has no elements. When the child calls
+ * {@link ChainedAction#next(Iterator, Context, Command, Command)} the
+ * continuation of the parent action is executed instead of the next action of
+ * the chain. The continuation is executed at most once.
+ * {@link ChainedAction#isCanceled(Iterator)} is answered by the chain of the
+ * parent iterator.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+class ChildIterator implements Iterator<ChainedAction>
+{
+    private final Iterator<ChainedAction> parent;
+    private final Command onContinue;
+    private boolean continued;
+
+
+    // ----------------------------------------------------------- constructors
+
+    ChildIterator(final Iterator<ChainedAction> parent, final Command onContinue)
+    {
+        this.parent = parent;
+        this.onContinue = onContinue;
+    }
+
+
+    // ------------------------------------------------------ iterator methods
+
+    public boolean hasNext()
+    {
+        return false;
+    }
+
+
+    public ChainedAction next()
+    {
+        throw new NoSuchElementException();
+    }
+
+
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    /**
+     * Executes the continuation of the parent action unless it was executed
+     * before.
+     */
+    void proceed()
+    {
+        if (!continued)
+        {
+            continued = true;
+            onContinue.execute();
+        }
+    }
+
+
+    /**
+     * Returns the iterator of the chain which <code>iterator</code> belongs
+     * to, following the parents of child iterators.
+     *
+     * @param iterator
+     * @return the iterator of the chain
+     */
+    static Iterator<ChainedAction> root(final Iterator<ChainedAction> iterator)
+    {
+        Iterator<ChainedAction> root = iterator;
+        while (root instanceof ChildIterator)
+        {
+            root = ((ChildIterator) root).parent;
+        }
+        return root;
+    }
+}
@@ -0,0 +1,236 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simple context for sharing data between {@link ChainedAction}s.
+ * <p>
+ * Values can be stored using typed {@link Key}s or plain strings. Typed keys
+ * should be defined as constants:
+ *
+ * <pre>
+ * static final Context.Key&lt;User&gt; USER = new Context.Key&lt;User&gt;(&quot;user&quot;);
+ * ...
+ * context.put(USER, user);
+ * User user = context.get(USER);
+ * </pre>
+ *
+ * Each key gets a dense integer slot when it's created, so typed lookups are
+ * plain array reads without hashing. The string based methods are kept as
+ * fallback and use a separate map which is only created when needed. Values
+ * stored with a key are not visible using the string methods and vice versa.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision:
+ *          81886 $
+ */
+public class Context
+{
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] values;
+    private Map<String, Object> data;
+    private List<Object> journal;
+
+
+    public Context()
+    {
+        values = EMPTY;
+    }
+
+
+    // ------------------------------------------------------------- typed keys
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key<T> key)
+    {
+        int slot = key.slot;
+        return slot < values.length ? (T) values[slot] : null;
+    }
+
+
+    public <T> void put(Key<T> key, T value)
+    {
+        set(key, value);
+    }
+
+
+    public boolean contains(Key<?> key)
+    {
+        return key.slot < values.length && values[key.slot] != null;
+    }
+
+
+    /**
+     * Untyped variant of {@link #put(Key, Object)} for framework code which
+     * copies values between contexts.
+     */
+    void set(Key<?> key, Object value)
+    {
+        int slot = key.slot;
+        if (slot >= values.length)
+        {
+            Object[] newValues = new Object[Math.max(slot + 1, Key.count())];
+            System.arraycopy(values, 0, newValues, 0, values.length);
+            values = newValues;
+        }
+        values[slot] = value;
+        if (journal != null)
+        {
+            journal.add(key);
+        }
+    }
+
+
+    /**
+     * Removes all values from this context.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = null;
+        }
+        if (data != null)
+        {
+            data.clear();
+        }
+    }
+
+
+    // ------------------------------------------------------------ string keys
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key)
+    {
+        return data == null ? null : (T) data.get(key);
+    }
+
+
+    public <T> void put(String key, T value)
+    {
+        if (data == null)
+        {
+            data = new HashMap<String, Object>();
+        }
+        data.put(key, value);
+        if (journal != null)
+        {
+            journal.add(key);
+        }
+    }
+
+
+    // ---------------------------------------------------------------- journal
+
+    /**
+     * Starts recording the keys of all values written to this context.
+     */
+    void startJournal()
+    {
+        if (journal == null)
+        {
+            journal = new ArrayList<Object>();
+        }
+        else
+        {
+            journal.clear();
+        }
+    }
+
+
+    /**
+     * Returns the values written since the journal was started or since the
+     * last call of this method and starts over.
+     * 
+     * @return the delta
+     */
+    ContextDelta takeDelta()
+    {
+        if (journal == null)
+        {
+            return new ContextDelta();
+        }
+        ContextDelta delta = new ContextDelta();
+        for (Object key : journal)
+        {
+            if (key instanceof Key<?>)
+            {
+                delta.add(key, get((Key<?>) key));
+            }
+            else
+            {
+                delta.add(key, get((String) key));
+            }
+        }
+        journal.clear();
+        return delta;
+    }
+
+
+    /**
+     * Stops recording the keys of written values.
+     */
+    void stopJournal()
+    {
+        journal = null;
+    }
+
+    /**
+     * Typed key for values in a {@link Context}. Every instance occupies a
+     * slot in every context it's used with, so keys should be created once
+     * and kept in constants.
+     *
+     * @param <T>
+     *            the type of the value
+     */
+    public static final class Key<T>
+    {
+        private static int nextSlot = 0;
+
+        private final int slot;
+        private final String name;
+
+
+        /**
+         * Creates a new key and assigns the next free slot.
+         *
+         * @param name
+         *            a descriptive name used in {@link #toString()}
+         */
+        public Key(String name)
+        {
+            this.name = name;
+            this.slot = nextSlot;
+            nextSlot++;
+        }
+
+
+        static int count()
+        {
+            return nextSlot;
+        }
+
+
+        int getSlot()
+        {
+            return slot;
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "Key [" + name + "]";
+        }
+    }
+}
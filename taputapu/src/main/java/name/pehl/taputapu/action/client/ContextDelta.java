@@ -0,0 +1,89 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The values one action wrote into a {@link Context}. Passed to a
+ * {@link ProgressListener} when the action has finished.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ContextDelta
+{
+    private final List<Object> keys;
+    private final List<Object> values;
+
+
+    ContextDelta()
+    {
+        this.keys = new ArrayList<Object>();
+        this.values = new ArrayList<Object>();
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Context.Key<T> key)
+    {
+        int index = keys.indexOf(key);
+        return index == -1 ? null : (T) values.get(index);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key)
+    {
+        int index = keys.indexOf(key);
+        return index == -1 ? null : (T) values.get(index);
+    }
+
+
+    public boolean contains(Context.Key<?> key)
+    {
+        return keys.contains(key);
+    }
+
+
+    public boolean contains(String key)
+    {
+        return keys.contains(key);
+    }
+
+
+    /**
+     * @return the number of written values
+     */
+    public int size()
+    {
+        return keys.size();
+    }
+
+
+    public boolean isEmpty()
+    {
+        return keys.isEmpty();
+    }
+
+
+    /**
+     * Adds or replaces a value.
+     * 
+     * @param key
+     *            a {@link Context.Key} or a string
+     * @param value
+     */
+    void add(final Object key, final Object value)
+    {
+        int index = keys.indexOf(key);
+        if (index == -1)
+        {
+            keys.add(key);
+            values.add(value);
+        }
+        else
+        {
+            values.set(index, value);
+        }
+    }
+}
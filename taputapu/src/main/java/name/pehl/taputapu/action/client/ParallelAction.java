@@ -0,0 +1,169 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * {@link ChainedAction} which starts several child actions at once. Place it
+ * in a {@link ChainedActionList} to run independent (asynchronous) actions in
+ * parallel:
+ * 
+ * <pre>
+ * new ChainedActionList(loadUser, new ParallelAction(loadSettings, loadMessages, loadNews), showUi)
+ *     .start(context, onSuccess, onError);
+ * </pre>
+ * 
+ * The chain continues with the next action once all children (or the
+ * configured quorum) have succeeded. As soon as one child reports an error,
+ * the chain is exited with <code>onError</code>. Callbacks of children which
+ * arrive after that are ignored, just like any callback of a child after its
+ * first one.
+ * <p>
+ * Each child is executed with a {@linkplain #childIterator(Iterator, Command)
+ * child iterator}. Thus a child signals success by calling
+ * {@link #next(Iterator, Context, Command, Command)} as usual and an error by
+ * calling {@link #exit(Context, Command)} with <code>onError</code>. Calling
+ * {@link #exit(Context, Command)} with <code>onSuccess</code> ends the whole
+ * chain. Children can use {@link #isCanceled(Iterator)} to find out whether
+ * the chain was canceled. All children share the same {@link Context}.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ParallelAction extends ChainedAction
+{
+    private final List<ChainedAction> actions;
+    private final int quorum;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new instance which waits for all <code>actions</code>.
+     * 
+     * @param actions
+     */
+    public ParallelAction(ChainedAction... actions)
+    {
+        this(actions == null ? 0 : actions.length, actions);
+    }
+
+
+    /**
+     * Creates a new instance which continues once <code>quorum</code>
+     * <code>actions</code> have succeeded.
+     * 
+     * @param quorum
+     *            the number of actions which have to succeed. Must be greater
+     *            than 0 unless there are no actions. Values greater than the
+     *            number of actions are reduced to the number of actions.
+     * @param actions
+     */
+    public ParallelAction(int quorum, ChainedAction... actions)
+    {
+        this.actions = new ArrayList<ChainedAction>();
+        if (actions != null)
+        {
+            this.actions.addAll(Arrays.asList(actions));
+        }
+        assert quorum > 0 || this.actions.isEmpty() : "Quorum must be greater than 0";
+        this.quorum = Math.min(quorum, this.actions.size());
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    @Override
+    public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+            final Command onError)
+    {
+        if (actions.isEmpty())
+        {
+            next(iterator, context, onSuccess, onError);
+            return;
+        }
+
+        final Join join = new Join();
+        for (ChainedAction action : actions)
+        {
+            if (join.done)
+            {
+                // a synchronous child already decided the outcome
+                break;
+            }
+            final Child child = new Child();
+            Iterator<ChainedAction> childIterator = childIterator(iterator, new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    if (child.complete() && !join.done)
+                    {
+                        join.succeeded++;
+                        if (join.succeeded >= quorum)
+                        {
+                            join.done = true;
+                            next(iterator, context, onSuccess, onError);
+                        }
+                    }
+                }
+            });
+            action.execute(childIterator, context, new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    if (child.complete() && !join.done)
+                    {
+                        join.done = true;
+                        exit(context, onSuccess);
+                    }
+                }
+            }, new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    if (child.complete() && !join.done)
+                    {
+                        join.done = true;
+                        exit(context, onError);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Shared state of one execution.
+     */
+    static final class Join
+    {
+        int succeeded;
+        boolean done;
+    }
+
+    /**
+     * State of one child in one execution. Only the first callback of a child
+     * counts, repeated callbacks are ignored.
+     */
+    static final class Child
+    {
+        boolean completed;
+
+
+        boolean complete()
+        {
+            if (completed)
+            {
+                return false;
+            }
+            completed = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package name.pehl.taputapu.action.client;
+
+/**
+ * Listener which is notified whenever an action of a
+ * {@link ChainedActionList} has finished successfully. Use it to render
+ * partial results before the whole chain has finished.
+ * 
+ * @see ChainedActionList#setProgressListener(ProgressListener)
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public interface ProgressListener
+{
+    /**
+     * Called when an action has continued the chain or has exited it with
+     * <code>onSuccess</code>.
+     * 
+     * @param action
+     *            the finished action
+     * @param index
+     *            the position of the action in the chain
+     * @param total
+     *            the number of actions in the chain
+     * @param delta
+     *            the values the action wrote into the context
+     */
+    void onActionFinished(ChainedAction action, int index, int total, ContextDelta delta);
+}
@@ -0,0 +1,161 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.Iterator;
+
+import name.pehl.taputapu.timer.client.TimerService;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * {@link ChainedAction} which retries another action with exponential backoff.
+ * If the wrapped action fails, it is executed again after
+ * <code>initialDelayMillis</code>. The delay doubles with every further
+ * attempt up to <code>maxDelayMillis</code>. Once <code>maxAttempts</code>
+ * attempts have failed, the chain is exited with <code>onError</code>.
+ * <p>
+ * The wrapped action is executed with a
+ * {@linkplain #childIterator(Iterator, Command) child iterator}. It signals
+ * success by calling {@link #next(Iterator, Context, Command, Command)} and an
+ * error by calling {@link #exit(Context, Command)} with <code>onError</code>.
+ * It can end the chain and see a cancel of the chain like any other action.
+ * Combine with {@link TimeoutAction} to retry actions which don't respond at
+ * all.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class RetryAction extends ChainedAction
+{
+    private final ChainedAction action;
+    private final int maxAttempts;
+    private final int initialDelayMillis;
+    private final int maxDelayMillis;
+    private final TimerService timerService;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new instance without an upper bound for the delay.
+     * 
+     * @param action
+     *            the wrapped action
+     * @param maxAttempts
+     *            the maximal number of attempts (including the first one)
+     * @param initialDelayMillis
+     *            the delay before the first retry in milliseconds
+     * @param timerService
+     *            the timer service used to schedule the retries
+     */
+    public RetryAction(ChainedAction action, int maxAttempts, int initialDelayMillis, TimerService timerService)
+    {
+        this(action, maxAttempts, initialDelayMillis, Integer.MAX_VALUE, timerService);
+    }
+
+
+    /**
+     * Creates a new instance.
+     * 
+     * @param action
+     *            the wrapped action
+     * @param maxAttempts
+     *            the maximal number of attempts (including the first one)
+     * @param initialDelayMillis
+     *            the delay before the first retry in milliseconds
+     * @param maxDelayMillis
+     *            the upper bound for the delay in milliseconds
+     * @param timerService
+     *            the timer service used to schedule the retries
+     */
+    public RetryAction(ChainedAction action, int maxAttempts, int initialDelayMillis, int maxDelayMillis,
+            TimerService timerService)
+    {
+        assert action != null;
+        assert timerService != null;
+
+        this.action = action;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.timerService = timerService;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    @Override
+    public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+            final Command onError)
+    {
+        attempt(1, initialDelayMillis, iterator, context, onSuccess, onError);
+    }
+
+
+    private void attempt(final int attempt, final int delayMillis, final Iterator<ChainedAction> iterator,
+            final Context context, final Command onSuccess, final Command onError)
+    {
+        final Attempt state = new Attempt();
+        Iterator<ChainedAction> childIterator = childIterator(iterator, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (!state.done)
+                {
+                    state.done = true;
+                    next(iterator, context, onSuccess, onError);
+                }
+            }
+        });
+        action.execute(childIterator, context, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (!state.done)
+                {
+                    state.done = true;
+                    exit(context, onSuccess);
+                }
+            }
+        }, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (state.done)
+                {
+                    return;
+                }
+                state.done = true;
+                if (attempt >= maxAttempts || isCanceled(iterator))
+                {
+                    exit(context, onError);
+                }
+                else
+                {
+                    timerService.schedule(delayMillis, new Command()
+                    {
+                        @Override
+                        public void execute()
+                        {
+                            if (!isCanceled(iterator))
+                            {
+                                int nextDelay = delayMillis > maxDelayMillis / 2 ? maxDelayMillis : delayMillis * 2;
+                                attempt(attempt + 1, nextDelay, iterator, context, onSuccess, onError);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * State of one attempt.
+     */
+    static final class Attempt
+    {
+        boolean done;
+    }
+}
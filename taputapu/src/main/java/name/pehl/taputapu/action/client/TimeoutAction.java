@@ -0,0 +1,129 @@
+package name.pehl.taputapu.action.client;
+
+import java.util.Iterator;
+
+import name.pehl.taputapu.timer.client.TimerHandle;
+import name.pehl.taputapu.timer.client.TimerService;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * {@link ChainedAction} which limits the time another action may take. If the
+ * wrapped action neither succeeds nor fails within the timeout, the chain is
+ * exited with <code>onError</code>. Late callbacks of the wrapped action are
+ * ignored.
+ * <p>
+ * The wrapped action is executed with a
+ * {@linkplain #childIterator(Iterator, Command) child iterator}. It signals
+ * success by calling {@link #next(Iterator, Context, Command, Command)} and an
+ * error by calling {@link #exit(Context, Command)} with <code>onError</code>.
+ * It can end the chain and see a cancel of the chain like any other action.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class TimeoutAction extends ChainedAction
+{
+    private final ChainedAction action;
+    private final int timeoutMillis;
+    private final TimerService timerService;
+
+
+    /**
+     * Creates a new instance.
+     * 
+     * @param action
+     *            the wrapped action
+     * @param timeoutMillis
+     *            the timeout in milliseconds
+     * @param timerService
+     *            the timer service used to schedule the timeout
+     */
+    public TimeoutAction(ChainedAction action, int timeoutMillis, TimerService timerService)
+    {
+        assert action != null;
+        assert timerService != null;
+
+        this.action = action;
+        this.timeoutMillis = timeoutMillis;
+        this.timerService = timerService;
+    }
+
+
+    @Override
+    public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+            final Command onError)
+    {
+        final Outcome outcome = new Outcome();
+        outcome.timer = timerService.schedule(timeoutMillis, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (!outcome.done)
+                {
+                    outcome.done = true;
+                    exit(context, onError);
+                }
+            }
+        });
+        Iterator<ChainedAction> childIterator = childIterator(iterator, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (outcome.complete())
+                {
+                    next(iterator, context, onSuccess, onError);
+                }
+            }
+        });
+        action.execute(childIterator, context, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (outcome.complete())
+                {
+                    exit(context, onSuccess);
+                }
+            }
+        }, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                if (outcome.complete())
+                {
+                    exit(context, onError);
+                }
+            }
+        });
+    }
+
+    /**
+     * State of one execution.
+     */
+    final class Outcome
+    {
+        TimerHandle timer;
+        boolean done;
+
+
+        /**
+         * Marks the execution as done and cancels the timeout.
+         *
+         * @return <code>false</code> if the execution was done before
+         */
+        boolean complete()
+        {
+            if (done)
+            {
+                return false;
+            }
+            done = true;
+            timerService.cancel(timer);
+            return true;
+        }
+    }
+}
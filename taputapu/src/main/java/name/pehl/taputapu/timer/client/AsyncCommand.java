@@ -0,0 +1,45 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Command which signals its completion asynchronously. Used by
+ * {@link TimerService#repeat(int, RepeatPolicy, AsyncCommand)}:
+ *
+ * <pre>
+ * timerService.repeat(5000, RepeatPolicy.FIXED_DELAY, new AsyncCommand()
+ * {
+ *     {@code @}Override
+ *     public void execute(final Command onComplete)
+ *     {
+ *         service.poll(new AsyncCallback&lt;Status&gt;()
+ *         {
+ *             public void onSuccess(Status result)
+ *             {
+ *                 ...
+ *                 onComplete.execute();
+ *             }
+ *
+ *             public void onFailure(Throwable caught)
+ *             {
+ *                 onComplete.execute();
+ *             }
+ *         });
+ *     }
+ * });
+ * </pre>
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public interface AsyncCommand
+{
+    /**
+     * Starts the command.
+     *
+     * @param onComplete
+     *            must be executed once the command is done, no matter if it
+     *            succeeded or not
+     */
+    void execute(Command onComplete);
+}
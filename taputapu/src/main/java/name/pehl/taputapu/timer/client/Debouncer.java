@@ -0,0 +1,212 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Executes a {@link Command} only after {@link #trigger()} hasn't been called
+ * for the specified delay. Typically used for keystroke or resize events:
+ * 
+ * <pre>
+ * final Debouncer debouncer = timerService.debounce(300, new Command()
+ * {
+ *     {@code @}Override
+ *     public void execute()
+ *     {
+ *         // search...
+ *     }
+ * });
+ * textBox.addKeyUpHandler(new KeyUpHandler()
+ * {
+ *     {@code @}Override
+ *     public void onKeyUp(KeyUpEvent event)
+ *     {
+ *         debouncer.trigger();
+ *     }
+ * });
+ * </pre>
+ * <p>
+ * The debouncer uses one {@link TimerBackend.Task} for its whole lifetime. Calls to
+ * {@link #trigger()} only record the current time and don't touch the timer
+ * while it is armed. When the timer elapses before the delay has passed since
+ * the last trigger, it is re-armed for the remaining time.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class Debouncer
+{
+    private final int delayMillis;
+    private final Command command;
+    private final boolean leading;
+    private final boolean trailing;
+    private final TimerBackend backend;
+    private final TimerBackend.Task timer;
+    private boolean armed;
+    private boolean pending;
+    private long lastTrigger;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new debouncer which executes <code>command</code> on the
+     * trailing edge.
+     * 
+     * @param delayMillis
+     *            the quiet period in milliseconds
+     * @param command
+     *            the code to be executed. Must not be null!
+     */
+    public Debouncer(final int delayMillis, final Command command)
+    {
+        this(delayMillis, command, false, true);
+    }
+
+
+    /**
+     * Creates a new debouncer.
+     * 
+     * @param delayMillis
+     *            the quiet period in milliseconds
+     * @param command
+     *            the code to be executed. Must not be null!
+     * @param leading
+     *            whether to execute <code>command</code> on the first trigger
+     *            of a burst
+     * @param trailing
+     *            whether to execute <code>command</code> once the burst is
+     *            over
+     */
+    public Debouncer(final int delayMillis, final Command command, final boolean leading, final boolean trailing)
+    {
+        this(delayMillis, command, leading, trailing, new GwtTimerBackend());
+    }
+
+
+    /**
+     * Creates a new debouncer which uses the specified backend.
+     * 
+     * @param delayMillis
+     *            the quiet period in milliseconds
+     * @param command
+     *            the code to be executed. Must not be null!
+     * @param leading
+     *            whether to execute <code>command</code> on the first trigger
+     *            of a burst
+     * @param trailing
+     *            whether to execute <code>command</code> once the burst is
+     *            over
+     * @param backend
+     *            the backend which provides the clock and the timer
+     */
+    public Debouncer(final int delayMillis, final Command command, final boolean leading, final boolean trailing,
+            final TimerBackend backend)
+    {
+        assert command != null;
+        assert backend != null;
+
+        this.delayMillis = delayMillis;
+        this.command = command;
+        this.leading = leading;
+        this.trailing = trailing;
+        this.backend = backend;
+        this.timer = backend.createTask(new Command()
+        {
+            @Override
+            public void execute()
+            {
+                onTimer();
+            }
+        });
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Signals an event. The command is executed once no further events
+     * occurred for the configured delay.
+     */
+    public void trigger()
+    {
+        lastTrigger = backend.currentTimeMillis();
+        if (armed)
+        {
+            pending = trailing;
+        }
+        else
+        {
+            armed = true;
+            timer.schedule(delayMillis);
+            if (leading)
+            {
+                pending = false;
+                command.execute();
+            }
+            else
+            {
+                pending = trailing;
+            }
+        }
+    }
+
+
+    /**
+     * Executes a pending command immediately.
+     */
+    public void flush()
+    {
+        if (armed)
+        {
+            timer.cancel();
+            armed = false;
+            if (pending)
+            {
+                pending = false;
+                command.execute();
+            }
+        }
+    }
+
+
+    /**
+     * Drops a pending command.
+     */
+    public void cancel()
+    {
+        timer.cancel();
+        armed = false;
+        pending = false;
+    }
+
+
+    /**
+     * @return <code>true</code> if the command will be executed once the
+     *         current burst is over.
+     */
+    public boolean isPending()
+    {
+        return pending;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void onTimer()
+    {
+        long elapsed = backend.currentTimeMillis() - lastTrigger;
+        if (elapsed < delayMillis)
+        {
+            timer.schedule((int) (delayMillis - elapsed));
+        }
+        else
+        {
+            armed = false;
+            if (pending)
+            {
+                pending = false;
+                command.execute();
+            }
+        }
+    }
+}
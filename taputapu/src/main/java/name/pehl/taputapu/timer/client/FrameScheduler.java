@@ -0,0 +1,193 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Runs commands aligned to animation frames. Used by
+ * {@link TimerService#scheduleOnNextFrame(Command)} and
+ * {@link TimerService#repeatEveryFrame(Command)}.
+ * <p>
+ * All commands which are due in a frame are executed in one animation frame
+ * callback. The callback stops as soon as the frame budget is used up and
+ * defers the remaining commands to the next frame. At least one command is
+ * executed per frame, so a single slow command can't stall the queue.
+ * Commands which are scheduled while a frame is processed run in the next
+ * frame.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+class FrameScheduler implements TimerRegistry.Owner, Command
+{
+    static final int DEFAULT_BUDGET_MILLIS = 8;
+
+    private final TimerRegistry registry;
+    private final TimerBackend backend;
+    private final TimerBackend.Task frame;
+    private boolean[] repeating;
+    private TimerHandle[] queue;
+    private int head;
+    private int queued;
+    private int count;
+    private int budgetMillis;
+    private boolean frameRequested;
+
+
+    // ----------------------------------------------------------- constructors
+
+    FrameScheduler(final TimerRegistry registry, final TimerBackend backend)
+    {
+        this.registry = registry;
+        this.backend = backend;
+        this.frame = backend.createTask(this);
+        this.repeating = new boolean[0];
+        this.queue = new TimerHandle[16];
+        this.budgetMillis = DEFAULT_BUDGET_MILLIS;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Queues a command for the next animation frame.
+     * 
+     * @param command
+     * @param repeat
+     *            whether the command should be executed in every frame
+     * @return the handle of the new timer
+     */
+    TimerHandle schedule(final Command command, final boolean repeat)
+    {
+        TimerHandle handle = registry.register(this, command);
+        int slot = handle.getSlot();
+        if (repeating.length < registry.capacity())
+        {
+            boolean[] newRepeating = new boolean[registry.capacity()];
+            System.arraycopy(repeating, 0, newRepeating, 0, repeating.length);
+            repeating = newRepeating;
+        }
+        repeating[slot] = repeat;
+        enqueue(handle);
+        count++;
+        requestFrame();
+        return handle;
+    }
+
+
+    /**
+     * The handle stays in the queue and is skipped when it's reached.
+     */
+    public void cancel(final int slot)
+    {
+        count--;
+        if (count == 0)
+        {
+            if (frameRequested)
+            {
+                frame.cancel();
+                frameRequested = false;
+            }
+            for (int i = 0; i < queued; i++)
+            {
+                queue[(head + i) % queue.length] = null;
+            }
+            head = 0;
+            queued = 0;
+        }
+    }
+
+
+    /**
+     * Processes the commands due in this frame.
+     */
+    public void execute()
+    {
+        frameRequested = false;
+        long deadline = backend.currentTimeMillis() + budgetMillis;
+        int due = queued;
+        int executed = 0;
+        while (due > 0 && queued > 0)
+        {
+            if (executed > 0 && backend.currentTimeMillis() >= deadline)
+            {
+                break;
+            }
+            TimerHandle handle = dequeue();
+            due--;
+            int slot = registry.lookup(handle);
+            if (slot == -1)
+            {
+                // canceled
+                continue;
+            }
+            Command command = registry.command(slot);
+            if (repeating[slot])
+            {
+                enqueue(handle);
+            }
+            else
+            {
+                registry.release(slot);
+                count--;
+                handle.setState(TimerHandle.State.FIRED);
+            }
+            executed++;
+            registry.execute(command, TimerMetrics.UNKNOWN, 0);
+        }
+        if (count > 0)
+        {
+            requestFrame();
+        }
+    }
+
+
+    void setBudgetMillis(final int budgetMillis)
+    {
+        this.budgetMillis = budgetMillis;
+    }
+
+
+    int size()
+    {
+        return count;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void requestFrame()
+    {
+        if (!frameRequested)
+        {
+            frameRequested = true;
+            frame.scheduleFrame();
+        }
+    }
+
+
+    private void enqueue(final TimerHandle handle)
+    {
+        if (queued == queue.length)
+        {
+            TimerHandle[] newQueue = new TimerHandle[queue.length * 2];
+            for (int i = 0; i < queued; i++)
+            {
+                newQueue[i] = queue[(head + i) % queue.length];
+            }
+            queue = newQueue;
+            head = 0;
+        }
+        queue[(head + queued) % queue.length] = handle;
+        queued++;
+    }
+
+
+    private TimerHandle dequeue()
+    {
+        TimerHandle handle = queue[head];
+        queue[head] = null;
+        head = (head + 1) % queue.length;
+        queued--;
+        return handle;
+    }
+}
@@ -0,0 +1,124 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationHandle;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.Timer;
+
+/**
+ * Default {@link TimerBackend} based on {@link Timer} and
+ * {@link AnimationScheduler}. Can only be used in GWT client code. Requires
+ * GWT 2.3 or later.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class GwtTimerBackend implements TimerBackend
+{
+    public Task createTask(final Command command)
+    {
+        assert command != null;
+        return new GwtTask(command);
+    }
+
+
+    public long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+
+    /**
+     * Uses <code>performance.now()</code> if the browser supports it. Falls
+     * back to the millisecond clock otherwise and outside of GWT.
+     */
+    public double highResolutionTimeMillis()
+    {
+        if (GWT.isClient())
+        {
+            return performanceNow();
+        }
+        return System.currentTimeMillis();
+    }
+
+
+    private static native double performanceNow()
+    /*-{
+        var performance = $wnd.performance;
+        if (performance && performance.now)
+        {
+            return performance.now();
+        }
+        return new Date().getTime();
+    }-*/;
+
+    static final class GwtTask extends Timer implements Task, AnimationCallback
+    {
+        final Command command;
+        AnimationHandle frame;
+
+
+        GwtTask(final Command command)
+        {
+            this.command = command;
+        }
+
+
+        @Override
+        public void run()
+        {
+            command.execute();
+        }
+
+
+        @Override
+        public void schedule(final int delayMillis)
+        {
+            cancelFrame();
+            // Timer in GWT 2.4 rejects a delay of 0
+            super.schedule(Math.max(1, delayMillis));
+        }
+
+
+        @Override
+        public void scheduleRepeating(final int periodMillis)
+        {
+            cancelFrame();
+            super.scheduleRepeating(periodMillis);
+        }
+
+
+        public void scheduleFrame()
+        {
+            cancel();
+            frame = AnimationScheduler.get().requestAnimationFrame(this);
+        }
+
+
+        public void execute(final double timestamp)
+        {
+            frame = null;
+            command.execute();
+        }
+
+
+        @Override
+        public void cancel()
+        {
+            super.cancel();
+            cancelFrame();
+        }
+
+
+        private void cancelFrame()
+        {
+            if (frame != null)
+            {
+                frame.cancel();
+                frame = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package name.pehl.taputapu.timer.client;
+
+/**
+ * Histogram of millisecond values with exponential buckets. Bucket 0 counts
+ * values of 0, bucket <code>i</code> counts values up to
+ * <code>2<sup>i - 1</sup></code> and the last bucket counts all values above
+ * {@value #MAX_BOUND} ms. Recording a value doesn't allocate any objects.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public final class Histogram
+{
+    /**
+     * The number of buckets.
+     */
+    public static final int BUCKETS = 13;
+
+    /**
+     * The upper bound of the last bucket but one, i.e.
+     * <code>getUpperBound(BUCKETS - 2)</code>.
+     */
+    public static final long MAX_BOUND = 1L << (BUCKETS - 3);
+
+    private final int[] counts;
+    private int count;
+    private long sum;
+    private long max;
+
+
+    // ----------------------------------------------------------- constructors
+
+    Histogram()
+    {
+        this.counts = new int[BUCKETS];
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * @param bucket
+     * @return the inclusive upper bound of the bucket or
+     *         {@link Long#MAX_VALUE} for the last bucket
+     */
+    public static long getUpperBound(final int bucket)
+    {
+        if (bucket == 0)
+        {
+            return 0;
+        }
+        if (bucket >= BUCKETS - 1)
+        {
+            return Long.MAX_VALUE;
+        }
+        return 1L << (bucket - 1);
+    }
+
+
+    /**
+     * @param bucket
+     * @return the number of values in the bucket
+     */
+    public int getCount(final int bucket)
+    {
+        return counts[bucket];
+    }
+
+
+    /**
+     * @return the number of recorded values
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+
+    public long getSum()
+    {
+        return sum;
+    }
+
+
+    public long getMax()
+    {
+        return max;
+    }
+
+
+    public double getMean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+
+    /**
+     * Returns an upper bound for the specified percentile based on the bucket
+     * bounds.
+     *
+     * @param percentile
+     *            between 0 and 100
+     * @return the upper bound of the bucket which contains the percentile, but
+     *         at most the maximum value
+     */
+    public long getPercentile(final double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        double threshold = count * percentile / 100;
+        int cumulated = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            cumulated += counts[bucket];
+            if (cumulated >= threshold && cumulated > 0)
+            {
+                return Math.min(getUpperBound(bucket), max);
+            }
+        }
+        return max;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "Histogram [count=" + count + ", mean=" + getMean() + ", p50=" + getPercentile(50) + ", p99="
+                + getPercentile(99) + ", max=" + max + "]";
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    void record(final long value)
+    {
+        long v = Math.max(0, value);
+        int bucket = 0;
+        while (bucket < BUCKETS - 1 && v > getUpperBound(bucket))
+        {
+            bucket++;
+        }
+        counts[bucket]++;
+        count++;
+        sum += v;
+        if (v > max)
+        {
+            max = v;
+        }
+    }
+
+
+    Histogram copy()
+    {
+        Histogram copy = new Histogram();
+        System.arraycopy(counts, 0, copy.counts, 0, BUCKETS);
+        copy.count = count;
+        copy.sum = sum;
+        copy.max = max;
+        return copy;
+    }
+
+
+    void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+}
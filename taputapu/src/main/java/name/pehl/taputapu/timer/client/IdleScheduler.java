@@ -0,0 +1,231 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Runs background commands in idle periods. Used for commands scheduled with
+ * {@link Priority#BACKGROUND}.
+ * <p>
+ * The application counts as idle once there was no user activity for the
+ * idle threshold. User activity is reported by
+ * {@link TimerService#notifyUserActivity()} and by executing commands with
+ * {@link Priority#IMMEDIATE}. In idle periods the due commands are executed
+ * in slices: a slice stops as soon as its budget is used up and the next
+ * slice is scheduled with a delay of 0, so that pending events are processed
+ * in between. At least one command is executed per slice.
+ * <p>
+ * Background queues are expected to be short, so the queue is a plain array
+ * in scheduling order which is scanned for due commands.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+class IdleScheduler implements TimerRegistry.Owner, Command
+{
+    static final int DEFAULT_THRESHOLD_MILLIS = 100;
+    static final int DEFAULT_SLICE_MILLIS = 8;
+
+    private final TimerRegistry registry;
+    private final TimerBackend backend;
+    private final TimerBackend.Task task;
+    private TimerHandle[] queue;
+    private int queued;
+    private long[] readyAt;
+    private int count;
+    private int thresholdMillis;
+    private int sliceMillis;
+    private long lastActivity;
+
+
+    // ----------------------------------------------------------- constructors
+
+    IdleScheduler(final TimerRegistry registry, final TimerBackend backend)
+    {
+        this.registry = registry;
+        this.backend = backend;
+        this.task = backend.createTask(this);
+        this.queue = new TimerHandle[16];
+        this.readyAt = new long[0];
+        this.thresholdMillis = DEFAULT_THRESHOLD_MILLIS;
+        this.sliceMillis = DEFAULT_SLICE_MILLIS;
+        this.lastActivity = backend.currentTimeMillis() - thresholdMillis;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Queues a background command.
+     *
+     * @param delayMillis
+     *            the minimal delay
+     * @param command
+     * @return the handle of the new timer
+     */
+    TimerHandle schedule(final int delayMillis, final Command command)
+    {
+        TimerHandle handle = registry.register(this, command);
+        int slot = handle.getSlot();
+        if (readyAt.length < registry.capacity())
+        {
+            readyAt = TimerRegistry.copy(readyAt, registry.capacity());
+        }
+        readyAt[slot] = backend.currentTimeMillis() + Math.max(0, delayMillis);
+        if (queued == queue.length)
+        {
+            TimerHandle[] newQueue = new TimerHandle[queue.length * 2];
+            System.arraycopy(queue, 0, newQueue, 0, queued);
+            queue = newQueue;
+        }
+        queue[queued] = handle;
+        queued++;
+        count++;
+        reschedule();
+        return handle;
+    }
+
+
+    /**
+     * The handle stays in the queue and is dropped when the queue is scanned.
+     */
+    public void cancel(final int slot)
+    {
+        count--;
+        if (count == 0)
+        {
+            task.cancel();
+            for (int i = 0; i < queued; i++)
+            {
+                queue[i] = null;
+            }
+            queued = 0;
+        }
+    }
+
+
+    /**
+     * Records user activity which postpones background work.
+     */
+    void activity()
+    {
+        lastActivity = backend.currentTimeMillis();
+    }
+
+
+    /**
+     * Executes one slice.
+     */
+    public void execute()
+    {
+        long now = backend.currentTimeMillis();
+        if (now >= lastActivity + thresholdMillis)
+        {
+            long deadline = now + sliceMillis;
+            int executed = 0;
+            while (executed == 0 || backend.currentTimeMillis() < deadline)
+            {
+                int index = nextReady(backend.currentTimeMillis());
+                if (index == -1)
+                {
+                    break;
+                }
+                TimerHandle handle = queue[index];
+                remove(index);
+                int slot = handle.getSlot();
+                long due = readyAt[slot];
+                Command command = registry.command(slot);
+                registry.release(slot);
+                count--;
+                handle.setState(TimerHandle.State.FIRED);
+                executed++;
+                registry.execute(command, due, 0);
+                if (backend.currentTimeMillis() < lastActivity + thresholdMillis)
+                {
+                    // the command reported user activity
+                    break;
+                }
+            }
+        }
+        reschedule();
+    }
+
+
+    void setThresholdMillis(final int thresholdMillis)
+    {
+        this.thresholdMillis = thresholdMillis;
+    }
+
+
+    void setSliceMillis(final int sliceMillis)
+    {
+        this.sliceMillis = sliceMillis;
+    }
+
+
+    int size()
+    {
+        return count;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    /**
+     * Returns the index of the first live command which is ready at
+     * <code>now</code> and drops canceled commands on the way.
+     */
+    private int nextReady(final long now)
+    {
+        int i = 0;
+        while (i < queued)
+        {
+            int slot = registry.lookup(queue[i]);
+            if (slot == -1)
+            {
+                remove(i);
+            }
+            else if (readyAt[slot] <= now)
+            {
+                return i;
+            }
+            else
+            {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+
+    private void remove(final int index)
+    {
+        queued--;
+        System.arraycopy(queue, index + 1, queue, index, queued - index);
+        queue[queued] = null;
+    }
+
+
+    /**
+     * Schedules the next slice for the time when the next command is ready
+     * and the application is idle.
+     */
+    private void reschedule()
+    {
+        if (count == 0)
+        {
+            task.cancel();
+            return;
+        }
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < queued; i++)
+        {
+            int slot = registry.lookup(queue[i]);
+            if (slot != -1 && readyAt[slot] < earliest)
+            {
+                earliest = readyAt[slot];
+            }
+        }
+        long target = Math.max(earliest, lastActivity + thresholdMillis);
+        task.schedule((int) Math.max(0, target - backend.currentTimeMillis()));
+    }
+}
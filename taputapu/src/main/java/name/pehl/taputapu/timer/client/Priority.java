@@ -0,0 +1,31 @@
+package name.pehl.taputapu.timer.client;
+
+/**
+ * Priority classes for commands scheduled with
+ * {@link TimerService#schedule(int, Priority, com.google.gwt.user.client.Command)}.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public enum Priority
+{
+    /**
+     * Executed exactly after the delay, also in timing wheel mode. The
+     * execution of such a command counts as user activity and postpones
+     * background work. Scheduling it doesn't.
+     */
+    IMMEDIATE,
+
+    /**
+     * Executed after the delay like any other timer. This is the priority of
+     * {@link TimerService#schedule(int, com.google.gwt.user.client.Command)}.
+     */
+    USER_VISIBLE,
+
+    /**
+     * Executed after the delay, but only once the application is idle and in
+     * time slices which leave room for other work. Meant for prefetching,
+     * cache warm-up and the like.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,39 @@
+package name.pehl.taputapu.timer.client;
+
+/**
+ * Controls how a repeating timer reacts to commands which take longer than
+ * the period. Used by
+ * {@link TimerService#repeat(int, RepeatPolicy, AsyncCommand)}.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public enum RepeatPolicy
+{
+    /**
+     * Fires every period, even if the previous execution hasn't completed.
+     * This is the behaviour of {@link TimerService#repeat(int,
+     * com.google.gwt.user.client.Command)}.
+     */
+    FIXED_RATE,
+
+    /**
+     * Fires one period after the previous execution has completed. The
+     * executions never overlap.
+     */
+    FIXED_DELAY,
+
+    /**
+     * Fires every period, but skips the execution if the previous execution
+     * hasn't completed yet.
+     */
+    SKIP_IF_BUSY,
+
+    /**
+     * Like {@link #FIXED_DELAY}, but doubles the delay whenever an execution
+     * takes longer than the period, up to eight times the period. The delay
+     * is halved again after each execution which completes within the
+     * period.
+     */
+    ADAPTIVE
+}
@@ -0,0 +1,157 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Repeating timer with a {@link RepeatPolicy}. Used by
+ * {@link TimerService#repeat(int, RepeatPolicy, AsyncCommand)}.
+ * <p>
+ * Every repeater uses its own {@link TimerBackend.Task}, also in timing wheel
+ * mode. Each execution gets a new number, so completions of executions which
+ * were overtaken or canceled are ignored.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+final class Repeater implements TimerRegistry.Owner, Command
+{
+    static final int MAX_BACKOFF = 8;
+
+    private final TimerRegistry registry;
+    private final TimerBackend backend;
+    private final TimerBackend.Task task;
+    private final int periodMillis;
+    private final RepeatPolicy policy;
+    private final AsyncCommand command;
+    private int slot;
+    private int delayMillis;
+    private long due;
+    private long runStart;
+    private int run;
+    private boolean busy;
+    private boolean canceled;
+
+
+    // ----------------------------------------------------------- constructors
+
+    Repeater(final TimerRegistry registry, final TimerBackend backend, final int periodMillis,
+            final RepeatPolicy policy, final AsyncCommand command)
+    {
+        assert periodMillis > 0;
+
+        this.registry = registry;
+        this.backend = backend;
+        this.task = backend.createTask(this);
+        this.periodMillis = periodMillis;
+        this.policy = policy;
+        this.command = command;
+        this.delayMillis = periodMillis;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Registers and starts the repeater.
+     *
+     * @return the handle of the timer
+     */
+    TimerHandle start()
+    {
+        TimerHandle handle = registry.register(this, new Command()
+        {
+            @Override
+            public void execute()
+            {
+                runCommand();
+            }
+        });
+        slot = handle.getSlot();
+        due = backend.currentTimeMillis() + periodMillis;
+        if (policy == RepeatPolicy.FIXED_RATE || policy == RepeatPolicy.SKIP_IF_BUSY)
+        {
+            task.scheduleRepeating(periodMillis);
+        }
+        else
+        {
+            task.schedule(periodMillis);
+        }
+        return handle;
+    }
+
+
+    public void cancel(final int slot)
+    {
+        canceled = true;
+        task.cancel();
+    }
+
+
+    /**
+     * Called by the task.
+     */
+    public void execute()
+    {
+        long requested = due;
+        if (policy == RepeatPolicy.FIXED_RATE || policy == RepeatPolicy.SKIP_IF_BUSY)
+        {
+            due += periodMillis;
+            if (busy && policy == RepeatPolicy.SKIP_IF_BUSY)
+            {
+                if (registry.getMetrics() != null)
+                {
+                    registry.getMetrics().overrun();
+                }
+                return;
+            }
+        }
+        registry.execute(registry.command(slot), requested,
+                policy == RepeatPolicy.FIXED_RATE || policy == RepeatPolicy.SKIP_IF_BUSY ? periodMillis : 0);
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void runCommand()
+    {
+        run++;
+        final int current = run;
+        busy = true;
+        runStart = backend.currentTimeMillis();
+        command.execute(new Command()
+        {
+            @Override
+            public void execute()
+            {
+                complete(current);
+            }
+        });
+    }
+
+
+    private void complete(final int completedRun)
+    {
+        if (canceled || completedRun != run || !busy)
+        {
+            return;
+        }
+        busy = false;
+        if (policy == RepeatPolicy.FIXED_DELAY || policy == RepeatPolicy.ADAPTIVE)
+        {
+            long now = backend.currentTimeMillis();
+            if (policy == RepeatPolicy.ADAPTIVE)
+            {
+                if (now - runStart > periodMillis)
+                {
+                    delayMillis = Math.min(delayMillis * 2, periodMillis * MAX_BACKOFF);
+                }
+                else
+                {
+                    delayMillis = Math.max(periodMillis, delayMillis / 2);
+                }
+            }
+            due = now + delayMillis;
+            task.schedule(delayMillis);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Executes a {@link Command} at most once per period no matter how often
+ * {@link #trigger()} is called. Typically used for scroll or mouse move
+ * events.
+ * <p>
+ * The throttler uses one {@link TimerBackend.Task} for its whole lifetime which is
+ * re-armed at the end of each period as long as there are triggers.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class Throttler
+{
+    private final int periodMillis;
+    private final Command command;
+    private final boolean leading;
+    private final boolean trailing;
+    private final TimerBackend.Task timer;
+    private boolean armed;
+    private boolean pending;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new throttler which executes <code>command</code> on the
+     * leading and the trailing edge.
+     * 
+     * @param periodMillis
+     *            the minimal time between two executions in milliseconds
+     * @param command
+     *            the code to be executed. Must not be null!
+     */
+    public Throttler(final int periodMillis, final Command command)
+    {
+        this(periodMillis, command, true, true);
+    }
+
+
+    /**
+     * Creates a new throttler.
+     * 
+     * @param periodMillis
+     *            the minimal time between two executions in milliseconds
+     * @param command
+     *            the code to be executed. Must not be null!
+     * @param leading
+     *            whether to execute <code>command</code> immediately on the
+     *            first trigger of a period
+     * @param trailing
+     *            whether to execute <code>command</code> at the end of a period
+     *            if there were further triggers
+     */
+    public Throttler(final int periodMillis, final Command command, final boolean leading, final boolean trailing)
+    {
+        this(periodMillis, command, leading, trailing, new GwtTimerBackend());
+    }
+
+
+    /**
+     * Creates a new throttler which uses the specified backend.
+     * 
+     * @param periodMillis
+     *            the minimal time between two executions in milliseconds
+     * @param command
+     *            the code to be executed. Must not be null!
+     * @param leading
+     *            whether to execute <code>command</code> immediately on the
+     *            first trigger of a period
+     * @param trailing
+     *            whether to execute <code>command</code> at the end of a period
+     *            if there were further triggers
+     * @param backend
+     *            the backend which provides the timer
+     */
+    public Throttler(final int periodMillis, final Command command, final boolean leading, final boolean trailing,
+            final TimerBackend backend)
+    {
+        assert command != null;
+        assert backend != null;
+
+        this.periodMillis = periodMillis;
+        this.command = command;
+        this.leading = leading;
+        this.trailing = trailing;
+        this.timer = backend.createTask(new Command()
+        {
+            @Override
+            public void execute()
+            {
+                onTimer();
+            }
+        });
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Signals an event. The command is executed at most once per period.
+     */
+    public void trigger()
+    {
+        if (armed)
+        {
+            pending = trailing;
+        }
+        else
+        {
+            armed = true;
+            timer.schedule(periodMillis);
+            if (leading)
+            {
+                pending = false;
+                command.execute();
+            }
+            else
+            {
+                pending = trailing;
+            }
+        }
+    }
+
+
+    /**
+     * Executes a pending command immediately and ends the current period.
+     */
+    public void flush()
+    {
+        if (armed)
+        {
+            timer.cancel();
+            armed = false;
+            if (pending)
+            {
+                pending = false;
+                command.execute();
+            }
+        }
+    }
+
+
+    /**
+     * Drops a pending command and ends the current period.
+     */
+    public void cancel()
+    {
+        timer.cancel();
+        armed = false;
+        pending = false;
+    }
+
+
+    /**
+     * @return <code>true</code> if the command will be executed at the end of
+     *         the current period.
+     */
+    public boolean isPending()
+    {
+        return pending;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void onTimer()
+    {
+        if (pending)
+        {
+            // Start a new period, so that triggers during the execution are
+            // throttled, too.
+            pending = false;
+            timer.schedule(periodMillis);
+            command.execute();
+        }
+        else
+        {
+            armed = false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Service provider interface for the clock and the timers behind
+ * {@link TimerService}, {@link Debouncer} and {@link Throttler}. By default
+ * these classes use {@link GwtTimerBackend} which is based on the browser
+ * timers. Other backends make it possible to run the same code on the JVM:
+ * <ul>
+ * <li><code>name.pehl.taputapu.timer.server.ExecutorTimerBackend</code> runs
+ * the commands on a <code>ScheduledExecutorService</code>
+ * <li><code>name.pehl.taputapu.timer.server.VirtualTimerBackend</code> uses a
+ * virtual clock which is advanced manually. Useful for deterministic tests.
+ * </ul>
+ * A backend must execute all commands one at a time, just like the event loop
+ * of the browser. The classes using the backend are not thread safe.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public interface TimerBackend
+{
+    /**
+     * The interval used by backends without a rendering loop to emulate
+     * animation frames.
+     */
+    int FRAME_MILLIS = 16;
+
+
+    /**
+     * Creates a new task for <code>command</code>. The task is not scheduled
+     * and can be scheduled again and again.
+     *
+     * @param command
+     *            the code to be executed when the task elapses
+     * @return the new task
+     */
+    Task createTask(Command command);
+
+
+    /**
+     * @return the current time of this backend in milliseconds
+     */
+    long currentTimeMillis();
+
+
+    /**
+     * Returns a time in milliseconds with sub-millisecond resolution where
+     * available. The origin is arbitrary, so the value is only useful to
+     * measure durations.
+     *
+     * @return the current high resolution time of this backend in
+     *         milliseconds
+     */
+    double highResolutionTimeMillis();
+
+    /**
+     * A reusable timer created by {@link TimerBackend#createTask(Command)}.
+     * Scheduling a task which is already scheduled replaces the previous
+     * schedule.
+     */
+    interface Task
+    {
+        /**
+         * Executes the command once after <code>delayMillis</code>.
+         *
+         * @param delayMillis
+         */
+        void schedule(int delayMillis);
+
+
+        /**
+         * Executes the command every <code>periodMillis</code>.
+         *
+         * @param periodMillis
+         *            must be greater than 0
+         */
+        void scheduleRepeating(int periodMillis);
+
+
+        /**
+         * Executes the command once in the next animation frame.
+         */
+        void scheduleFrame();
+
+
+        /**
+         * Cancels the task. Does nothing if the task isn't scheduled.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,191 @@
+package name.pehl.taputapu.timer.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Merges one-shot timers with overlapping tolerance windows into a single
+ * wakeup. Used by {@link TimerService#schedule(int, int, Command)}.
+ * <p>
+ * Each command may fire anywhere in the window
+ * <code>[delay, delay + tolerance]</code>. Commands whose windows overlap are
+ * collected in a batch. The window of a batch is the intersection of the
+ * windows of its members and the batch fires at the end of this window, so
+ * that as many commands as possible can join before the wakeup.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+class TimerCoalescer
+{
+    private final TimerRegistry registry;
+    private final TimerBackend backend;
+    private final List<Batch> batches;
+    private int count;
+    private int savedWakeups;
+
+
+    // ----------------------------------------------------------- constructors
+
+    TimerCoalescer(final TimerRegistry registry, final TimerBackend backend)
+    {
+        this.registry = registry;
+        this.backend = backend;
+        this.batches = new ArrayList<Batch>();
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Adds the command to an existing batch with an overlapping window or
+     * creates a new batch.
+     *
+     * @param delayMillis
+     * @param toleranceMillis
+     * @param command
+     * @return the handle of the new timer
+     */
+    TimerHandle schedule(final int delayMillis, final int toleranceMillis, final Command command)
+    {
+        long now = backend.currentTimeMillis();
+        long start = now + delayMillis;
+        long end = start + Math.max(0, toleranceMillis);
+
+        Batch batch = null;
+        for (Batch candidate : batches)
+        {
+            if (candidate.start <= end && candidate.end >= start)
+            {
+                batch = candidate;
+                break;
+            }
+        }
+        if (batch == null)
+        {
+            batch = new Batch(start, end);
+            batches.add(batch);
+            batch.timer.schedule((int) (end - now));
+        }
+        else
+        {
+            batch.start = Math.max(batch.start, start);
+            if (end < batch.end)
+            {
+                batch.end = end;
+                batch.timer.schedule((int) (end - now));
+            }
+        }
+        TimerHandle handle = registry.register(batch, command);
+        batch.add(handle.getSlot());
+        count++;
+        return handle;
+    }
+
+
+    /**
+     * @return the number of pending commands
+     */
+    int size()
+    {
+        return count;
+    }
+
+
+    /**
+     * @return the number of wakeups saved by merging commands into batches
+     */
+    int getSavedWakeups()
+    {
+        return savedWakeups;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void fire(final Batch batch)
+    {
+        batches.remove(batch);
+        Command[] commands = new Command[batch.size];
+        for (int i = 0; i < batch.size; i++)
+        {
+            int slot = batch.slots[i];
+            TimerHandle handle = registry.handle(slot);
+            commands[i] = registry.command(slot);
+            registry.release(slot);
+            handle.setState(TimerHandle.State.FIRED);
+        }
+        count -= batch.size;
+        savedWakeups += batch.size - 1;
+        batch.size = 0;
+        for (Command command : commands)
+        {
+            registry.execute(command, batch.end, 0);
+        }
+    }
+
+    /**
+     * A set of commands which share one wakeup.
+     */
+    final class Batch implements TimerRegistry.Owner
+    {
+        long start;
+        long end;
+        int[] slots;
+        int size;
+        final TimerBackend.Task timer;
+
+
+        Batch(final long start, final long end)
+        {
+            this.start = start;
+            this.end = end;
+            this.slots = new int[4];
+            this.timer = backend.createTask(new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    fire(Batch.this);
+                }
+            });
+        }
+
+
+        void add(final int slot)
+        {
+            if (size == slots.length)
+            {
+                slots = TimerRegistry.copy(slots, size * 2);
+            }
+            slots[size] = slot;
+            size++;
+        }
+
+
+        /**
+         * Removes the slot from this batch. If the batch becomes empty, its
+         * wakeup is canceled.
+         */
+        public void cancel(final int slot)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (slots[i] == slot)
+                {
+                    size--;
+                    System.arraycopy(slots, i + 1, slots, i, size - i);
+                    count--;
+                    break;
+                }
+            }
+            if (size == 0)
+            {
+                timer.cancel();
+                batches.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package name.pehl.taputapu.timer.client;
+
+/**
+ * Simple handle used in {@link TimerService}. Besides identifying a timer the
+ * handle keeps track of the timer's {@linkplain State state}.
+ * <p>
+ * A handle consists of the slot of the timer inside the {@link TimerService}
+ * and a generation counter. Slots are reused once a timer has fired or was
+ * canceled, but the generation makes sure that an old handle never matches a
+ * newer timer in the same slot.
+ * <p>
+ * Handles are created by {@link TimerService}. The public constructor is only
+ * kept for compatibility: such handles don't belong to any timer.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision:
+ *          82669 $
+ */
+public class TimerHandle
+{
+    private static int nextDetached = 0;
+    private final int slot;
+    private final int generation;
+    private State state;
+
+
+    /**
+     * Constructs a handle which doesn't belong to any timer and has an unique
+     * identifier. {@link TimerService#cancel(TimerHandle)} returns
+     * <code>false</code> for such handles, their state is
+     * {@link State#CANCELED}.
+     * 
+     * @deprecated Handles are created by {@link TimerService}. Kept for
+     *             compatibility only.
+     */
+    @Deprecated
+    public TimerHandle()
+    {
+        this(-1, nextDetached);
+        nextDetached++;
+        this.state = State.CANCELED;
+    }
+
+
+    /**
+     * Construct a new instance of this class for the specified slot and
+     * generation.
+     * 
+     * @param slot
+     * @param generation
+     */
+    TimerHandle(final int slot, final int generation)
+    {
+        this.slot = slot;
+        this.generation = generation;
+        this.state = State.SCHEDULED;
+    }
+
+
+    /**
+     * Based on the slot and the generation which make up {@link #getId()}.
+     * 
+     * @param obj
+     * @return
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null)
+        {
+            return false;
+        }
+        if (getClass() != obj.getClass())
+        {
+            return false;
+        }
+        TimerHandle other = (TimerHandle) obj;
+        if (slot != other.slot)
+        {
+            return false;
+        }
+        if (generation != other.generation)
+        {
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Based on the slot and the generation which make up {@link #getId()}.
+     * 
+     * @return
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + slot;
+        result = prime * result + generation;
+        return result;
+    }
+
+
+    /**
+     * @return the unique identifier of this handle. The upper 32 bits contain
+     *         the generation, the lower 32 bits the slot.
+     */
+    public long getId()
+    {
+        return ((long) generation << 32) | (slot & 0xffffffffL);
+    }
+
+
+    int getSlot()
+    {
+        return slot;
+    }
+
+
+    int getGeneration()
+    {
+        return generation;
+    }
+
+
+    /**
+     * @return the current state of the timer identified by this handle.
+     */
+    public State getState()
+    {
+        return state;
+    }
+
+
+    void setState(State state)
+    {
+        this.state = state;
+    }
+
+    /**
+     * The states of a timer. Repeating timers stay {@link #SCHEDULED} until
+     * they are canceled.
+     */
+    public enum State
+    {
+        SCHEDULED,
+        FIRED,
+        CANCELED
+    }
+}
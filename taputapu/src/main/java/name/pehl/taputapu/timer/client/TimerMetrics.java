@@ -0,0 +1,333 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Collects metrics of a {@link TimerService}. Enable it with
+ * {@link TimerService#enableMetrics()}:
+ *
+ * <pre>
+ * TimerMetrics metrics = timerService.enableMetrics();
+ * metrics.setListener(new TimerMetrics.Listener()
+ * {
+ *     {@code @}Override
+ *     public void onSnapshot(TimerMetrics.Snapshot snapshot)
+ *     {
+ *         telemetry.send(snapshot.getLateness().getPercentile(99), ...);
+ *     }
+ * }, 10000);
+ * </pre>
+ *
+ * The metrics are collected in intervals. {@link #snapshot()} returns the
+ * data of the current interval and starts a new one. A
+ * {@linkplain #setListener(Listener, int) listener} receives a snapshot at
+ * the end of every interval.
+ * <p>
+ * Collected are the number of scheduled, canceled and fired timers, the fire
+ * lateness (the actual minus the requested time), the execution time of the
+ * commands and the number of overruns of repeating timers. A repeating timer
+ * overruns its period if it fires one period or more too late or if its
+ * command takes one period or longer. The lateness of commands scheduled with
+ * a tolerance is measured against the end of their window. Commands executed
+ * in animation frames have no requested time and only count for the
+ * execution time.
+ * <p>
+ * When metrics are not enabled, the timer service doesn't do any extra work.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public final class TimerMetrics
+{
+    /**
+     * Marks commands without requested time.
+     */
+    static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final TimerBackend backend;
+    private final TimerRegistry registry;
+    private final Histogram lateness;
+    private final Histogram execution;
+    private long intervalStart;
+    private int scheduled;
+    private int canceled;
+    private int fired;
+    private int overruns;
+    private Listener listener;
+    private TimerBackend.Task reporter;
+
+
+    // ----------------------------------------------------------- constructors
+
+    TimerMetrics(final TimerBackend backend, final TimerRegistry registry)
+    {
+        this.backend = backend;
+        this.registry = registry;
+        this.lateness = new Histogram();
+        this.execution = new Histogram();
+        this.intervalStart = backend.currentTimeMillis();
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Returns the metrics of the current interval and starts a new interval.
+     *
+     * @return the metrics collected since the last snapshot
+     */
+    public Snapshot snapshot()
+    {
+        long now = backend.currentTimeMillis();
+        Snapshot snapshot = new Snapshot(now, now - intervalStart, registry.size(), scheduled, canceled, fired,
+                overruns, lateness.copy(), execution.copy());
+        intervalStart = now;
+        scheduled = 0;
+        canceled = 0;
+        fired = 0;
+        overruns = 0;
+        lateness.reset();
+        execution.reset();
+        return snapshot;
+    }
+
+
+    /**
+     * Sets a listener which receives a {@linkplain #snapshot() snapshot}
+     * every <code>intervalMillis</code>. The timer used for this is not
+     * managed by the timer service and doesn't show up in the metrics.
+     *
+     * @param listener
+     *            the listener or <code>null</code> to stop reporting
+     * @param intervalMillis
+     *            the reporting interval in milliseconds
+     */
+    public void setListener(final Listener listener, final int intervalMillis)
+    {
+        this.listener = listener;
+        if (reporter == null)
+        {
+            reporter = backend.createTask(new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    report();
+                }
+            });
+        }
+        if (listener != null)
+        {
+            snapshot();
+            reporter.scheduleRepeating(intervalMillis);
+        }
+        else
+        {
+            reporter.cancel();
+        }
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    void scheduled()
+    {
+        scheduled++;
+    }
+
+
+    void canceled()
+    {
+        canceled++;
+    }
+
+
+    /**
+     * Records an execution of a repeating timer which was skipped because
+     * the previous one was still running.
+     */
+    void overrun()
+    {
+        overruns++;
+    }
+
+
+    /**
+     * Executes the command and records its lateness and execution time.
+     *
+     * @param command
+     * @param due
+     *            the requested time or {@link #UNKNOWN}
+     * @param period
+     *            the period of a repeating timer, otherwise 0
+     */
+    void execute(final Command command, final long due, final int period)
+    {
+        long start = backend.currentTimeMillis();
+        fired++;
+        long late = 0;
+        if (due != UNKNOWN)
+        {
+            late = start - due;
+            lateness.record(late);
+        }
+        command.execute();
+        long duration = backend.currentTimeMillis() - start;
+        execution.record(duration);
+        if (period > 0 && (late >= period || duration >= period))
+        {
+            overruns++;
+        }
+    }
+
+
+    private void report()
+    {
+        if (listener != null)
+        {
+            listener.onSnapshot(snapshot());
+        }
+    }
+
+    /**
+     * Receives the metrics at the end of every interval.
+     */
+    public interface Listener
+    {
+        void onSnapshot(Snapshot snapshot);
+    }
+
+    /**
+     * The metrics of one interval.
+     */
+    public static final class Snapshot
+    {
+        private final long timestamp;
+        private final long intervalMillis;
+        private final int activeTimers;
+        private final int scheduled;
+        private final int canceled;
+        private final int fired;
+        private final int overruns;
+        private final Histogram lateness;
+        private final Histogram execution;
+
+
+        Snapshot(final long timestamp, final long intervalMillis, final int activeTimers, final int scheduled,
+                final int canceled, final int fired, final int overruns, final Histogram lateness,
+                final Histogram execution)
+        {
+            this.timestamp = timestamp;
+            this.intervalMillis = intervalMillis;
+            this.activeTimers = activeTimers;
+            this.scheduled = scheduled;
+            this.canceled = canceled;
+            this.fired = fired;
+            this.overruns = overruns;
+            this.lateness = lateness;
+            this.execution = execution;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "TimerMetrics.Snapshot [interval=" + intervalMillis + "ms, active=" + activeTimers
+                    + ", scheduled=" + scheduled + ", canceled=" + canceled + ", fired=" + fired + ", overruns="
+                    + overruns + ", lateness=" + lateness + ", execution=" + execution + "]";
+        }
+
+
+        /**
+         * @return the end of the interval according to the clock of the
+         *         timer backend
+         */
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+
+        public long getIntervalMillis()
+        {
+            return intervalMillis;
+        }
+
+
+        /**
+         * @return the number of pending timers at the end of the interval
+         */
+        public int getActiveTimers()
+        {
+            return activeTimers;
+        }
+
+
+        public int getScheduled()
+        {
+            return scheduled;
+        }
+
+
+        public int getCanceled()
+        {
+            return canceled;
+        }
+
+
+        /**
+         * @return the number of executed commands. Each execution of a
+         *         repeating timer counts.
+         */
+        public int getFired()
+        {
+            return fired;
+        }
+
+
+        /**
+         * @return the number of executions of repeating timers which fired
+         *         at least one period too late or took at least one period
+         */
+        public int getOverruns()
+        {
+            return overruns;
+        }
+
+
+        public double getSchedulesPerSecond()
+        {
+            return perSecond(scheduled);
+        }
+
+
+        public double getCancelsPerSecond()
+        {
+            return perSecond(canceled);
+        }
+
+
+        /**
+         * @return the actual minus the requested fire time in milliseconds
+         */
+        public Histogram getLateness()
+        {
+            return lateness;
+        }
+
+
+        /**
+         * @return the execution time of the commands in milliseconds
+         */
+        public Histogram getExecution()
+        {
+            return execution;
+        }
+
+
+        private double perSecond(final int value)
+        {
+            return intervalMillis <= 0 ? 0 : value * 1000.0 / intervalMillis;
+        }
+    }
+}
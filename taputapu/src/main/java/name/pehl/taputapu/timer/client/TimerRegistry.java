@@ -0,0 +1,254 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Registry for the timers of a {@link TimerService}. Timers are stored in
+ * parallel arrays which are indexed directly by the slot of their
+ * {@link TimerHandle}. Released slots are reused, and each slot carries a
+ * generation counter which is incremented on release. A handle only matches
+ * its slot as long as the generations are equal, so stale handles can never
+ * cancel a newer timer which happens to reuse the same slot.
+ * <p>
+ * Besides the handle the registry does not allocate any objects when a timer
+ * is registered or released (except when the arrays have to grow). When
+ * compiled with GWT the arrays are plain JavaScript arrays.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+class TimerRegistry
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] generations;
+    private TimerHandle[] handles;
+    private Owner[] owners;
+    private Command[] commands;
+    private int[] freeSlots;
+    private int freeCount;
+    private int top;
+    private int size;
+    private TimerMetrics metrics;
+
+
+    // ----------------------------------------------------------- constructors
+
+    TimerRegistry()
+    {
+        generations = new int[INITIAL_CAPACITY];
+        handles = new TimerHandle[INITIAL_CAPACITY];
+        owners = new Owner[INITIAL_CAPACITY];
+        commands = new Command[INITIAL_CAPACITY];
+        freeSlots = new int[INITIAL_CAPACITY];
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Registers a new timer.
+     *
+     * @param owner
+     *            the part of the {@link TimerService} which is responsible for
+     *            the timer
+     * @param command
+     *            the code to be executed
+     * @return the handle of the new timer
+     */
+    TimerHandle register(final Owner owner, final Command command)
+    {
+        int slot;
+        if (freeCount > 0)
+        {
+            freeCount--;
+            slot = freeSlots[freeCount];
+        }
+        else
+        {
+            if (top == generations.length)
+            {
+                grow();
+            }
+            slot = top;
+            top++;
+        }
+        TimerHandle handle = new TimerHandle(slot, generations[slot]);
+        handles[slot] = handle;
+        owners[slot] = owner;
+        commands[slot] = command;
+        size++;
+        if (metrics != null)
+        {
+            metrics.scheduled();
+        }
+        return handle;
+    }
+
+
+    /**
+     * Releases the slot of a timer which has fired or was canceled. The
+     * generation of the slot is incremented, so that the old handle no longer
+     * matches.
+     *
+     * @param slot
+     */
+    void release(final int slot)
+    {
+        generations[slot]++;
+        handles[slot] = null;
+        owners[slot] = null;
+        commands[slot] = null;
+        freeSlots[freeCount] = slot;
+        freeCount++;
+        size--;
+    }
+
+
+    /**
+     * Returns the slot of the timer identified by <code>handle</code>.
+     *
+     * @param handle
+     * @return the slot or -1 if the timer has already fired or was canceled
+     */
+    int lookup(final TimerHandle handle)
+    {
+        int slot = handle.getSlot();
+        if (slot >= 0 && slot < top && owners[slot] != null && generations[slot] == handle.getGeneration())
+        {
+            return slot;
+        }
+        return -1;
+    }
+
+
+    TimerHandle handle(final int slot)
+    {
+        return handles[slot];
+    }
+
+
+    Owner owner(final int slot)
+    {
+        return owners[slot];
+    }
+
+
+    Command command(final int slot)
+    {
+        return commands[slot];
+    }
+
+
+    /**
+     * Executes the command of a timer which fired. All parts of the
+     * {@link TimerService} use this method, so that the command can be
+     * measured when metrics are enabled.
+     *
+     * @param command
+     * @param due
+     *            the requested time or {@link TimerMetrics#UNKNOWN}
+     * @param period
+     *            the period of a repeating timer, otherwise 0
+     */
+    void execute(final Command command, final long due, final int period)
+    {
+        if (metrics == null)
+        {
+            command.execute();
+        }
+        else
+        {
+            metrics.execute(command, due, period);
+        }
+    }
+
+
+    TimerMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+
+    void setMetrics(final TimerMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+
+    /**
+     * @return the number of slots which are currently in use or have been in
+     *         use. All valid slots are below this value.
+     */
+    int top()
+    {
+        return top;
+    }
+
+
+    /**
+     * @return the current length of the slot arrays
+     */
+    int capacity()
+    {
+        return generations.length;
+    }
+
+
+    /**
+     * @return the number of registered timers
+     */
+    int size()
+    {
+        return size;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void grow()
+    {
+        int capacity = generations.length * 2;
+        generations = copy(generations, capacity);
+        freeSlots = copy(freeSlots, capacity);
+        TimerHandle[] newHandles = new TimerHandle[capacity];
+        System.arraycopy(handles, 0, newHandles, 0, top);
+        handles = newHandles;
+        Owner[] newOwners = new Owner[capacity];
+        System.arraycopy(owners, 0, newOwners, 0, top);
+        owners = newOwners;
+        Command[] newCommands = new Command[capacity];
+        System.arraycopy(commands, 0, newCommands, 0, top);
+        commands = newCommands;
+    }
+
+
+    static int[] copy(final int[] source, final int capacity)
+    {
+        int[] target = new int[capacity];
+        System.arraycopy(source, 0, target, 0, Math.min(source.length, capacity));
+        return target;
+    }
+
+
+    static long[] copy(final long[] source, final int capacity)
+    {
+        long[] target = new long[capacity];
+        System.arraycopy(source, 0, target, 0, Math.min(source.length, capacity));
+        return target;
+    }
+
+    /**
+     * The part of the {@link TimerService} which is responsible for a timer.
+     */
+    interface Owner
+    {
+        /**
+         * Stops the timer in the specified slot. The slot itself is released
+         * by the caller.
+         *
+         * @param slot
+         */
+        void cancel(int slot);
+    }
+}
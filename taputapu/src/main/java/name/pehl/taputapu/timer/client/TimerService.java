@@ -0,0 +1,666 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Class for managing timer instances. Timer instances can be started
+ * using the methods {@link #schedule(int, Command)} and
+ * {@link #repeat(int, Command)}. These methods return a
+ * {@linkplain TimerHandle handle} which can be used later on to stop the timer
+ * using the method {@link #cancel(TimerHandle)}.
+ * <p>
+ * The code to be executed must be specified using a {@link Command} instance:
+ * 
+ * <pre>
+ * TimerService timerService = ...;
+ * TimerHandle handle = timerService.repeat(5000, new Command()
+ * {
+ *     {@code @}Override
+ *     public void execute()
+ *     {
+ *         ...
+ *     }
+ * });
+ * ...
+ * timerService.cancel(handle);
+ * </pre>
+ * <p>
+ * Timers created by {@link #schedule(int, Command)} are removed from the
+ * service as soon as they fire. Thus {@link #size()} always reflects the
+ * number of pending timers.
+ * <p>
+ * By default every scheduled command is backed by its own timer. If many
+ * short timers are used, the service can be created in <em>timing wheel
+ * mode</em> using {@link #TimerService(int)}. In this mode a single timer
+ * drives a hierarchical timing wheel and scheduling / cancelling
+ * become constant time bucket operations. The price is a reduced resolution:
+ * commands fire at most one tick later than requested.
+ * <p>
+ * Timers which don't need to fire at an exact point in time (polling,
+ * debouncing, retry backoffs, ...) can be scheduled with a tolerance using
+ * {@link #schedule(int, int, Command)}. Timers whose tolerance windows overlap
+ * share one wakeup. The number of wakeups saved this way is available from
+ * {@link #getSavedWakeups()}.
+ * <p>
+ * UI updates should be aligned to the rendering of the browser. Use
+ * {@link #scheduleOnNextFrame(Command)} and {@link #repeatEveryFrame(Command)}
+ * for this. All commands due in a frame are executed in one animation frame
+ * callback which respects a {@linkplain #setFrameBudget(int) time budget}.
+ * Commands which don't fit into the budget are deferred to the next frame.
+ * <p>
+ * The timers and the clock are provided by a {@link TimerBackend}. The
+ * default constructors use the browser timers of {@link GwtTimerBackend}. Pass
+ * another backend to run the service on the JVM:
+ * 
+ * <pre>
+ * VirtualTimerBackend backend = new VirtualTimerBackend();
+ * TimerService timerService = new TimerService(backend);
+ * timerService.schedule(1000, command);
+ * backend.advance(1000); // executes command
+ * </pre>
+ * <p>
+ * Commands can be scheduled with a {@link Priority}. Background commands
+ * like prefetching run only when the application is idle and in time slices,
+ * see {@link #runWhenIdle(Command)} and {@link #notifyUserActivity()}.
+ * <p>
+ * Repeating commands which run asynchronous work can use a
+ * {@link RepeatPolicy} to avoid piling up executions, see
+ * {@link #repeat(int, RepeatPolicy, AsyncCommand)}.
+ * <p>
+ * Lateness, execution times and other metrics can be collected with
+ * {@link #enableMetrics()}.
+ * <p>
+ * Internally all timers are kept in a {@link TimerRegistry} which is indexed
+ * directly by the slot of the {@link TimerHandle}. Stale handles of timers
+ * which have already fired or were canceled never match a newer timer.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision:
+ *          82669 $
+ */
+public final class TimerService
+{
+    private final TimerBackend backend;
+    private final TimerRegistry registry;
+    private final TimingWheel wheel;
+    private final TimerCoalescer coalescer;
+    private final FrameScheduler frames;
+    private final IdleScheduler idle;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new timer service which uses one browser timer per scheduled
+     * command.
+     */
+    public TimerService()
+    {
+        this(new GwtTimerBackend());
+    }
+
+
+    /**
+     * Creates a new timer service which uses one task of <code>backend</code>
+     * per scheduled command.
+     * 
+     * @param backend
+     *            the backend which provides the clock and the timers
+     */
+    public TimerService(final TimerBackend backend)
+    {
+        assert backend != null;
+
+        this.backend = backend;
+        this.registry = new TimerRegistry();
+        this.wheel = null;
+        this.coalescer = new TimerCoalescer(registry, backend);
+        this.frames = new FrameScheduler(registry, backend);
+        this.idle = new IdleScheduler(registry, backend);
+    }
+
+
+    /**
+     * Creates a new timer service in timing wheel mode. All commands are
+     * driven by one browser timer which ticks every <code>tickMillis</code>
+     * milliseconds while there are scheduled commands.
+     * 
+     * @param tickMillis
+     *            the resolution of the timing wheel in milliseconds. Must be
+     *            greater than 0.
+     */
+    public TimerService(final int tickMillis)
+    {
+        this(tickMillis, new GwtTimerBackend());
+    }
+
+
+    /**
+     * Creates a new timer service in timing wheel mode which is driven by one
+     * task of <code>backend</code>.
+     * 
+     * @param tickMillis
+     *            the resolution of the timing wheel in milliseconds. Must be
+     *            greater than 0.
+     * @param backend
+     *            the backend which provides the clock and the timers
+     */
+    public TimerService(final int tickMillis, final TimerBackend backend)
+    {
+        assert backend != null;
+
+        this.backend = backend;
+        this.registry = new TimerRegistry();
+        this.wheel = new TimingWheel(tickMillis, registry, backend);
+        this.coalescer = new TimerCoalescer(registry, backend);
+        this.frames = new FrameScheduler(registry, backend);
+        this.idle = new IdleScheduler(registry, backend);
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Schedules a timer to elapse in the future. The code to be executed must
+     * be specified using a {@link Command} instance.
+     * 
+     * @see TimerBackend.Task#schedule(int)
+     * @param delayMillis
+     *            how long to wait before the timer elapses, in milliseconds
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle schedule(final int delayMillis, final Command command)
+    {
+        return scheduleInternal(delayMillis, command, false);
+    }
+
+
+    /**
+     * Schedules a timer to elapse in the future with the specified tolerance.
+     * The timer fires somewhere between <code>delayMillis</code> and
+     * <code>delayMillis + toleranceMillis</code>. Timers whose windows overlap
+     * are merged into one wakeup which executes all their commands in one
+     * batch.
+     * <p>
+     * In timing wheel mode all commands which are due in the same tick already
+     * share one wakeup. Therefore the tolerance is ignored in this mode.
+     * 
+     * @param delayMillis
+     *            how long to wait at least before the timer elapses, in
+     *            milliseconds
+     * @param toleranceMillis
+     *            how much later than <code>delayMillis</code> the timer may
+     *            elapse, in milliseconds
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle schedule(final int delayMillis, final int toleranceMillis, final Command command)
+    {
+        if (command != null && wheel == null)
+        {
+            return coalescer.schedule(delayMillis, toleranceMillis, command);
+        }
+        return scheduleInternal(delayMillis, command, false);
+    }
+
+
+    /**
+     * Schedules a timer that elapses repeatedly. The code to be executed must
+     * be specified using a {@link Command} instance.
+     * 
+     * @see TimerBackend.Task#scheduleRepeating(int)
+     * @param periodMillis
+     *            how long to wait before the timer elapses, in milliseconds,
+     *            between each repetition
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle repeat(final int periodMillis, final Command command)
+    {
+        return scheduleInternal(periodMillis, command, true);
+    }
+
+
+    /**
+     * Schedules a timer that elapses repeatedly according to
+     * <code>policy</code>. The command must signal its completion, so that
+     * the policy can react to executions which take longer than the period.
+     * <p>
+     * The timer always uses its own task of the backend, also in timing wheel
+     * mode.
+     * 
+     * @param periodMillis
+     *            the period in milliseconds. Must be greater than 0.
+     * @param policy
+     *            what to do if an execution takes longer than the period
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle repeat(final int periodMillis, final RepeatPolicy policy, final AsyncCommand command)
+    {
+        if (command != null && policy != null)
+        {
+            return new Repeater(registry, backend, periodMillis, policy, command).start();
+        }
+        return null;
+    }
+
+
+    /**
+     * Schedules a timer that elapses repeatedly according to
+     * <code>policy</code>. The command is considered complete as soon as
+     * {@link Command#execute()} returns.
+     * 
+     * @see #repeat(int, RepeatPolicy, AsyncCommand)
+     * @param periodMillis
+     *            the period in milliseconds. Must be greater than 0.
+     * @param policy
+     *            what to do if an execution takes longer than the period
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle repeat(final int periodMillis, final RepeatPolicy policy, final Command command)
+    {
+        if (command != null)
+        {
+            return repeat(periodMillis, policy, new AsyncCommand()
+            {
+                @Override
+                public void execute(final Command onComplete)
+                {
+                    command.execute();
+                    onComplete.execute();
+                }
+            });
+        }
+        return null;
+    }
+
+
+    private TimerHandle scheduleInternal(final int interval, final Command command, final boolean repeat)
+    {
+        if (command != null)
+        {
+            if (wheel != null)
+            {
+                return wheel.schedule(interval, command, repeat);
+            }
+            return scheduleSingle(interval, command, repeat);
+        }
+        return null;
+    }
+
+
+    private TimerHandle scheduleSingle(final int interval, final Command command, final boolean repeat)
+    {
+        SingleTimer timer = new SingleTimer(repeat, repeat ? interval : 0);
+        TimerHandle handle = registry.register(timer, command);
+        timer.slot = handle.getSlot();
+        timer.due = backend.currentTimeMillis() + interval;
+        if (repeat)
+        {
+            timer.task.scheduleRepeating(interval);
+        }
+        else
+        {
+            timer.task.schedule(interval);
+        }
+        return handle;
+    }
+
+
+    /**
+     * Schedules a timer with the specified priority.
+     * <ul>
+     * <li>{@link Priority#IMMEDIATE}: the command is executed exactly after
+     * the delay, also in timing wheel mode. Its execution counts as user
+     * activity and postpones background work.
+     * <li>{@link Priority#USER_VISIBLE}: same as
+     * {@link #schedule(int, Command)}
+     * <li>{@link Priority#BACKGROUND}: the command is executed once the delay
+     * has passed and the application is idle. See
+     * {@link #runWhenIdle(Command)}.
+     * </ul>
+     * 
+     * @param delayMillis
+     *            how long to wait at least before the timer elapses, in
+     *            milliseconds
+     * @param priority
+     *            the priority of the command
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle schedule(final int delayMillis, final Priority priority, final Command command)
+    {
+        if (command == null || priority == null)
+        {
+            return null;
+        }
+        switch (priority)
+        {
+            case IMMEDIATE:
+                return scheduleSingle(delayMillis, new Command()
+                {
+                    @Override
+                    public void execute()
+                    {
+                        idle.activity();
+                        command.execute();
+                    }
+                }, false);
+            case BACKGROUND:
+                return idle.schedule(delayMillis, command);
+            default:
+                return schedule(delayMillis, command);
+        }
+    }
+
+
+    /**
+     * Executes <code>command</code> in the next idle period. The application
+     * is idle once there was no user activity for the
+     * {@linkplain #setIdleThreshold(int) idle threshold}. Background commands
+     * are executed in slices of at most the {@linkplain #setIdleSlice(int)
+     * slice budget}, so that other events are processed in between.
+     * 
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle runWhenIdle(final Command command)
+    {
+        return schedule(0, Priority.BACKGROUND, command);
+    }
+
+
+    /**
+     * Reports user activity like key strokes. Background commands are
+     * postponed until there was no activity for the
+     * {@linkplain #setIdleThreshold(int) idle threshold}.
+     */
+    public void notifyUserActivity()
+    {
+        idle.activity();
+    }
+
+
+    /**
+     * Sets how long there must be no user activity before background commands
+     * are executed. Defaults to
+     * {@value IdleScheduler#DEFAULT_THRESHOLD_MILLIS} ms.
+     * 
+     * @param thresholdMillis
+     *            the threshold in milliseconds
+     */
+    public void setIdleThreshold(final int thresholdMillis)
+    {
+        idle.setThresholdMillis(thresholdMillis);
+    }
+
+
+    /**
+     * Sets the time budget for background commands executed in one slice.
+     * Defaults to {@value IdleScheduler#DEFAULT_SLICE_MILLIS} ms.
+     * 
+     * @param sliceMillis
+     *            the budget in milliseconds
+     */
+    public void setIdleSlice(final int sliceMillis)
+    {
+        idle.setSliceMillis(sliceMillis);
+    }
+
+
+    /**
+     * Executes <code>command</code> in the next animation frame.
+     * 
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle scheduleOnNextFrame(final Command command)
+    {
+        if (command != null)
+        {
+            return frames.schedule(command, false);
+        }
+        return null;
+    }
+
+
+    /**
+     * Executes <code>command</code> in every animation frame until the timer
+     * is canceled.
+     * 
+     * @param command
+     *            the code to be executed
+     * @return the unique timer handle
+     */
+    public TimerHandle repeatEveryFrame(final Command command)
+    {
+        if (command != null)
+        {
+            return frames.schedule(command, true);
+        }
+        return null;
+    }
+
+
+    /**
+     * Sets the time budget for commands executed in one animation frame.
+     * Commands which don't fit into the budget are deferred to the next frame.
+     * Defaults to {@value FrameScheduler#DEFAULT_BUDGET_MILLIS} ms.
+     * 
+     * @param budgetMillis
+     *            the budget in milliseconds
+     */
+    public void setFrameBudget(final int budgetMillis)
+    {
+        frames.setBudgetMillis(budgetMillis);
+    }
+
+
+    /**
+     * Creates a {@link Debouncer} which executes <code>command</code> once
+     * {@link Debouncer#trigger()} wasn't called for <code>delayMillis</code>.
+     * 
+     * @param delayMillis
+     *            the quiet period in milliseconds
+     * @param command
+     *            the code to be executed
+     * @return the debouncer
+     */
+    public Debouncer debounce(final int delayMillis, final Command command)
+    {
+        return new Debouncer(delayMillis, command, false, true, backend);
+    }
+
+
+    /**
+     * Creates a {@link Throttler} which executes <code>command</code> at most
+     * once every <code>periodMillis</code>.
+     * 
+     * @param periodMillis
+     *            the minimal time between two executions in milliseconds
+     * @param command
+     *            the code to be executed
+     * @return the throttler
+     */
+    public Throttler throttle(final int periodMillis, final Command command)
+    {
+        return new Throttler(periodMillis, command, true, true, backend);
+    }
+
+
+    /**
+     * Cancels the timer specified by <code>handle</code>.
+     * 
+     * @see TimerBackend.Task#cancel()
+     * @param handle
+     *            The handle which was returned by
+     *            {@link #schedule(int, Command)} or
+     *            {@link #repeat(int, Command)}.
+     * @return <code>true</code> if the timer was pending and has been
+     *         canceled, <code>false</code> if the timer has already fired or
+     *         was canceled before. Use {@link TimerHandle#getState()} to tell
+     *         the two cases apart.
+     */
+    public boolean cancel(TimerHandle handle)
+    {
+        if (handle != null)
+        {
+            int slot = registry.lookup(handle);
+            if (slot != -1)
+            {
+                cancelSlot(slot);
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Cancels all timer managed by this TimerService.
+     * 
+     * @see TimerBackend.Task#cancel()
+     */
+    public void cancelAll()
+    {
+        for (int slot = 0; slot < registry.top(); slot++)
+        {
+            if (registry.owner(slot) != null)
+            {
+                cancelSlot(slot);
+            }
+        }
+    }
+
+
+    /**
+     * @return the number of pending timers managed by this TimerService. Timers
+     *         which have already fired or were canceled are not counted.
+     */
+    public int size()
+    {
+        return registry.size();
+    }
+
+
+    /**
+     * @return the backend which provides the clock and the timers of this
+     *         service
+     */
+    public TimerBackend getBackend()
+    {
+        return backend;
+    }
+
+
+    /**
+     * Enables the collection of metrics. Calling this method again returns
+     * the same metrics.
+     * 
+     * @return the metrics of this service
+     */
+    public TimerMetrics enableMetrics()
+    {
+        if (registry.getMetrics() == null)
+        {
+            registry.setMetrics(new TimerMetrics(backend, registry));
+        }
+        return registry.getMetrics();
+    }
+
+
+    /**
+     * @return the metrics of this service or <code>null</code> if they
+     *         haven't been {@linkplain #enableMetrics() enabled}
+     */
+    public TimerMetrics getMetrics()
+    {
+        return registry.getMetrics();
+    }
+
+
+    /**
+     * @return the number of wakeups saved by merging timers scheduled with
+     *         {@link #schedule(int, int, Command)}
+     */
+    public int getSavedWakeups()
+    {
+        return coalescer.getSavedWakeups();
+    }
+
+
+    TimerRegistry getRegistry()
+    {
+        return registry;
+    }
+
+
+    private void cancelSlot(final int slot)
+    {
+        if (registry.getMetrics() != null)
+        {
+            registry.getMetrics().canceled();
+        }
+        TimerHandle handle = registry.handle(slot);
+        registry.owner(slot).cancel(slot);
+        registry.release(slot);
+        handle.setState(TimerHandle.State.CANCELED);
+    }
+
+    /**
+     * Timer used for one command if the service doesn't run in timing wheel
+     * mode.
+     */
+    final class SingleTimer implements Command, TimerRegistry.Owner
+    {
+        final boolean repeat;
+        final int period;
+        final TimerBackend.Task task;
+        int slot;
+        long due;
+
+
+        SingleTimer(final boolean repeat, final int period)
+        {
+            this.repeat = repeat;
+            this.period = period;
+            this.task = backend.createTask(this);
+        }
+
+
+        @Override
+        public void execute()
+        {
+            Command command = registry.command(slot);
+            long requested = due;
+            if (repeat)
+            {
+                due += period;
+            }
+            else
+            {
+                TimerHandle handle = registry.handle(slot);
+                registry.release(slot);
+                handle.setState(TimerHandle.State.FIRED);
+            }
+            registry.execute(command, requested, period);
+        }
+
+
+        public void cancel(final int slot)
+        {
+            task.cancel();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package name.pehl.taputapu.timer.client;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Hierarchical timing wheel used by {@link TimerService} in timing wheel mode.
+ * Instead of one browser timer per scheduled command, a single
+ * {@link TimerBackend.Task} ticks every <code>tickMillis</code> milliseconds and advances a wheel of
+ * buckets. Scheduling and cancelling are constant time operations on doubly
+ * linked bucket lists.
+ * <p>
+ * The entries of the wheel are the slots of the {@link TimerRegistry}. The
+ * bucket lists and the expiration data are kept in parallel primitive arrays
+ * indexed by slot, so scheduling a command doesn't allocate any objects
+ * besides the {@link TimerHandle}.
+ * <p>
+ * The wheel consists of {@value #LEVELS} levels with {@value #SLOTS} slots
+ * each. Level 0 holds entries which expire within the next {@value #SLOTS}
+ * ticks, every higher level covers a {@value #SLOTS} times larger range.
+ * Whenever a lower level wraps around, the matching slot of the next level is
+ * cascaded down. Entries which expire beyond the range of the top level are
+ * parked in the top level and re-inserted once their slot is reached.
+ * <p>
+ * The tick timer only runs while the wheel contains entries and always fires
+ * at the next tick boundary. Commands never fire early and at most one tick
+ * later than requested.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+class TimingWheel implements TimerRegistry.Owner
+{
+    static final int LEVELS = 4;
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int SLOT_MASK = SLOTS - 1;
+    static final long MAX_TICKS = 1L << (LEVELS * SLOT_BITS);
+    private static final int NONE = -1;
+
+    private final int tickMillis;
+    private final long origin;
+    private final TimerRegistry registry;
+    private final TimerBackend backend;
+    private final TimerBackend.Task ticker;
+
+    // bucket lists: LEVELS * SLOTS heads and tails
+    private final int[] heads;
+    private final int[] tails;
+
+    // per registry slot
+    private int[] next;
+    private int[] prev;
+    private int[] bucketOf;
+    private int[] ticks;
+    private long[] expirations;
+    private boolean[] repeating;
+
+    private int count;
+    private boolean ticking;
+    private long currentTick;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new timing wheel with the specified resolution.
+     *
+     * @param tickMillis
+     *            the duration of one tick in milliseconds. Must be greater
+     *            than 0.
+     * @param registry
+     *            the registry which manages the slots of the entries
+     * @param backend
+     *            the backend which drives the tick timer
+     */
+    TimingWheel(final int tickMillis, final TimerRegistry registry, final TimerBackend backend)
+    {
+        assert tickMillis > 0;
+
+        this.tickMillis = tickMillis;
+        this.origin = backend.currentTimeMillis();
+        this.registry = registry;
+        this.backend = backend;
+        this.heads = new int[LEVELS * SLOTS];
+        this.tails = new int[LEVELS * SLOTS];
+        for (int i = 0; i < heads.length; i++)
+        {
+            heads[i] = NONE;
+            tails[i] = NONE;
+        }
+        this.next = new int[0];
+        this.prev = new int[0];
+        this.bucketOf = new int[0];
+        this.ticks = new int[0];
+        this.expirations = new long[0];
+        this.repeating = new boolean[0];
+        this.ticker = backend.createTask(new Command()
+        {
+            @Override
+            public void execute()
+            {
+                ticking = false;
+                advance(elapsedTicks());
+                startTicking();
+            }
+        });
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Adds a command to the wheel.
+     *
+     * @param delayMillis
+     *            the delay in milliseconds. For repeating commands this is
+     *            also the period.
+     * @param command
+     *            the code to be executed
+     * @param repeat
+     *            whether the command should be executed repeatedly
+     * @return the handle of the new entry
+     */
+    TimerHandle schedule(final int delayMillis, final Command command, final boolean repeat)
+    {
+        long elapsedMillis = backend.currentTimeMillis() - origin;
+        long now = elapsedMillis / tickMillis;
+        if (count == 0)
+        {
+            // Nothing to catch up, so jump directly to the current tick
+            currentTick = now;
+        }
+
+        TimerHandle handle = registry.register(this, command);
+        int slot = handle.getSlot();
+        ensureCapacity(registry.capacity());
+        ticks[slot] = toTicks(delayMillis);
+        repeating[slot] = repeat;
+        // Round up from the exact time, otherwise commands scheduled in the
+        // middle of a tick would fire early.
+        expirations[slot] = Math.max(now + 1, (elapsedMillis + Math.max(0, delayMillis) + tickMillis - 1)
+                / tickMillis);
+        bucketOf[slot] = NONE;
+        insert(slot);
+        count++;
+        startTicking();
+        return handle;
+    }
+
+
+    /**
+     * Removes the entry in the specified slot from the wheel.
+     *
+     * @param slot
+     */
+    public void cancel(final int slot)
+    {
+        unlink(slot);
+        count--;
+        stopIfIdle();
+    }
+
+
+    /**
+     * @return the number of scheduled commands
+     */
+    int size()
+    {
+        return count;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    /**
+     * Processes all ticks up to and including <code>targetTick</code>.
+     *
+     * @param targetTick
+     */
+    void advance(final long targetTick)
+    {
+        while (currentTick < targetTick && count > 0)
+        {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--)
+            {
+                int shift = level * SLOT_BITS;
+                if ((currentTick & ((1L << shift) - 1)) == 0)
+                {
+                    cascade(bucket(level, (int) ((currentTick >>> shift) & SLOT_MASK)));
+                }
+            }
+            expire(bucket(0, (int) (currentTick & SLOT_MASK)));
+        }
+        if (count == 0)
+        {
+            currentTick = targetTick;
+        }
+        stopIfIdle();
+    }
+
+
+    private void cascade(final int bucket)
+    {
+        // Detach the whole list first, entries are re-inserted into other
+        // buckets.
+        int slot = heads[bucket];
+        heads[bucket] = NONE;
+        tails[bucket] = NONE;
+        while (slot != NONE)
+        {
+            int following = next[slot];
+            bucketOf[slot] = NONE;
+            insert(slot);
+            slot = following;
+        }
+    }
+
+
+    private void expire(final int bucket)
+    {
+        // Entries are taken one by one, so commands may safely schedule or
+        // cancel other entries while the bucket is processed.
+        while (heads[bucket] != NONE)
+        {
+            int slot = heads[bucket];
+            unlink(slot);
+            Command command = registry.command(slot);
+            long due = origin + expirations[slot] * tickMillis;
+            int period = repeating[slot] ? ticks[slot] * tickMillis : 0;
+            if (repeating[slot])
+            {
+                expirations[slot] = currentTick + ticks[slot];
+                insert(slot);
+            }
+            else
+            {
+                TimerHandle handle = registry.handle(slot);
+                registry.release(slot);
+                count--;
+                handle.setState(TimerHandle.State.FIRED);
+            }
+            registry.execute(command, due, period);
+        }
+    }
+
+
+    private void insert(final int slot)
+    {
+        long expiration = Math.max(expirations[slot], currentTick);
+        long delta = expiration - currentTick;
+        for (int level = 0; level < LEVELS; level++)
+        {
+            int shift = (level + 1) * SLOT_BITS;
+            if (delta < (1L << shift))
+            {
+                append(bucket(level, (int) ((expiration >>> (level * SLOT_BITS)) & SLOT_MASK)), slot);
+                return;
+            }
+        }
+
+        // Beyond the range of the wheel: park the entry in the last slot of
+        // the top level. It will be re-inserted when this slot is cascaded.
+        int shift = (LEVELS - 1) * SLOT_BITS;
+        append(bucket(LEVELS - 1, (int) (((currentTick + MAX_TICKS - 1) >>> shift) & SLOT_MASK)), slot);
+    }
+
+
+    private void append(final int bucket, final int slot)
+    {
+        int tail = tails[bucket];
+        prev[slot] = tail;
+        next[slot] = NONE;
+        bucketOf[slot] = bucket;
+        if (tail == NONE)
+        {
+            heads[bucket] = slot;
+        }
+        else
+        {
+            next[tail] = slot;
+        }
+        tails[bucket] = slot;
+    }
+
+
+    private void unlink(final int slot)
+    {
+        int bucket = bucketOf[slot];
+        if (bucket == NONE)
+        {
+            return;
+        }
+        int p = prev[slot];
+        int n = next[slot];
+        if (p == NONE)
+        {
+            heads[bucket] = n;
+        }
+        else
+        {
+            next[p] = n;
+        }
+        if (n == NONE)
+        {
+            tails[bucket] = p;
+        }
+        else
+        {
+            prev[n] = p;
+        }
+        bucketOf[slot] = NONE;
+    }
+
+
+    private void ensureCapacity(final int capacity)
+    {
+        if (next.length < capacity)
+        {
+            next = TimerRegistry.copy(next, capacity);
+            prev = TimerRegistry.copy(prev, capacity);
+            bucketOf = TimerRegistry.copy(bucketOf, capacity);
+            ticks = TimerRegistry.copy(ticks, capacity);
+            expirations = TimerRegistry.copy(expirations, capacity);
+            boolean[] newRepeating = new boolean[capacity];
+            System.arraycopy(repeating, 0, newRepeating, 0, repeating.length);
+            repeating = newRepeating;
+        }
+    }
+
+
+    /**
+     * Schedules the tick timer for the next tick boundary. Rescheduling
+     * every tick instead of using a repeating timer keeps the ticks aligned
+     * to the boundaries even if the timer fires late.
+     */
+    private void startTicking()
+    {
+        if (!ticking && count > 0)
+        {
+            ticking = true;
+            ticker.schedule(tickMillis - (int) ((backend.currentTimeMillis() - origin) % tickMillis));
+        }
+    }
+
+
+    private void stopIfIdle()
+    {
+        if (ticking && count == 0)
+        {
+            ticking = false;
+            ticker.cancel();
+        }
+    }
+
+
+    private long elapsedTicks()
+    {
+        return (backend.currentTimeMillis() - origin) / tickMillis;
+    }
+
+
+    private int toTicks(final int delayMillis)
+    {
+        return Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+    }
+
+
+    private static int bucket(final int level, final int slot)
+    {
+        return level * SLOTS + slot;
+    }
+}
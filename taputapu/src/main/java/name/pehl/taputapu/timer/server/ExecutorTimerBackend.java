@@ -0,0 +1,182 @@
+package name.pehl.taputapu.timer.server;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import name.pehl.taputapu.timer.client.TimerBackend;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * {@link TimerBackend} for the JVM which executes the commands on a
+ * {@link ScheduledExecutorService}. Animation frames are emulated by a delay
+ * of {@value TimerBackend#FRAME_MILLIS} ms.
+ * <p>
+ * Like the browser the backend should execute one command at a time. The
+ * default constructor therefore creates a single threaded executor which acts
+ * as event loop. The timer service and the chains using this backend must
+ * only be used from this thread. Use {@link #execute(Command)} to get there
+ * from other threads:
+ *
+ * <pre>
+ * final ExecutorTimerBackend backend = new ExecutorTimerBackend();
+ * final TimerService timerService = new TimerService(backend);
+ * backend.execute(new Command()
+ * {
+ *     {@code @}Override
+ *     public void execute()
+ *     {
+ *         chain.start(onSuccess, onError);
+ *     }
+ * });
+ * </pre>
+ *
+ * If you pass your own executor, e.g. one based on virtual threads, make sure
+ * it doesn't run commands concurrently.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ExecutorTimerBackend implements TimerBackend
+{
+    private final ScheduledExecutorService executor;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new backend with a single threaded executor.
+     */
+    public ExecutorTimerBackend()
+    {
+        this(Executors.newSingleThreadScheduledExecutor());
+    }
+
+
+    /**
+     * Creates a new backend which uses the specified executor.
+     *
+     * @param executor
+     *            the executor which runs the commands
+     */
+    public ExecutorTimerBackend(final ScheduledExecutorService executor)
+    {
+        assert executor != null;
+        this.executor = executor;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    public Task createTask(final Command command)
+    {
+        assert command != null;
+        return new ExecutorTask(command);
+    }
+
+
+    public long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+
+    /**
+     * Based on {@link System#nanoTime()}.
+     */
+    public double highResolutionTimeMillis()
+    {
+        return System.nanoTime() / 1000000.0;
+    }
+
+
+    /**
+     * Executes <code>command</code> as soon as possible on the executor.
+     *
+     * @param command
+     */
+    public void execute(final Command command)
+    {
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                command.execute();
+            }
+        });
+    }
+
+
+    /**
+     * Shuts down the executor. Pending tasks are dropped.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+
+    public ScheduledExecutorService getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Task which keeps the future of its current schedule.
+     */
+    final class ExecutorTask implements Task, Runnable
+    {
+        final Command command;
+        ScheduledFuture<?> future;
+
+
+        ExecutorTask(final Command command)
+        {
+            this.command = command;
+        }
+
+
+        public synchronized void schedule(final int delayMillis)
+        {
+            cancel();
+            future = executor.schedule(this, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        }
+
+
+        public synchronized void scheduleRepeating(final int periodMillis)
+        {
+            if (periodMillis <= 0)
+            {
+                throw new IllegalArgumentException("Period must be greater than 0");
+            }
+            cancel();
+            future = executor.scheduleAtFixedRate(this, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+
+
+        public void scheduleFrame()
+        {
+            schedule(FRAME_MILLIS);
+        }
+
+
+        public synchronized void cancel()
+        {
+            if (future != null)
+            {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+
+        @Override
+        public void run()
+        {
+            command.execute();
+        }
+    }
+}
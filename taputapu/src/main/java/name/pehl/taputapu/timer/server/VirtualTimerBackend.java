@@ -0,0 +1,310 @@
+package name.pehl.taputapu.timer.server;
+
+import java.util.PriorityQueue;
+
+import name.pehl.taputapu.timer.client.TimerBackend;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * {@link TimerBackend} with a virtual clock for deterministic tests. Time only
+ * moves when {@link #advance(long)}, {@link #advanceTo(long)} or
+ * {@link #runNext()} is called. Those methods execute all commands which are
+ * due in the passed time on the calling thread, in the order of their due
+ * time. Commands with the same due time are executed in the order they were
+ * scheduled. Animation frames are emulated by a delay of
+ * {@value TimerBackend#FRAME_MILLIS} ms.
+ *
+ * <pre>
+ * VirtualTimerBackend backend = new VirtualTimerBackend();
+ * TimerService timerService = new TimerService(backend);
+ * timerService.schedule(100, command);
+ * backend.advance(99); // nothing happens
+ * backend.advance(1); // executes command
+ * </pre>
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class VirtualTimerBackend implements TimerBackend
+{
+    private final PriorityQueue<Entry> queue;
+    private long now;
+    private long sequence;
+    private int scheduled;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new backend whose clock starts at 0.
+     */
+    public VirtualTimerBackend()
+    {
+        this(0);
+    }
+
+
+    /**
+     * Creates a new backend whose clock starts at <code>startMillis</code>.
+     *
+     * @param startMillis
+     */
+    public VirtualTimerBackend(final long startMillis)
+    {
+        this.queue = new PriorityQueue<Entry>();
+        this.now = startMillis;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    public Task createTask(final Command command)
+    {
+        assert command != null;
+        return new VirtualTask(command);
+    }
+
+
+    public long currentTimeMillis()
+    {
+        return now;
+    }
+
+
+    /**
+     * Returns the virtual time, just like {@link #currentTimeMillis()}.
+     */
+    public double highResolutionTimeMillis()
+    {
+        return now;
+    }
+
+
+    /**
+     * Moves the clock <code>millis</code> forward and executes all commands
+     * which become due.
+     *
+     * @param millis
+     *            must not be negative
+     * @return the number of executed commands
+     */
+    public int advance(final long millis)
+    {
+        assert millis >= 0;
+        return advanceTo(now + millis);
+    }
+
+
+    /**
+     * Moves the clock to <code>timeMillis</code> and executes all commands
+     * which become due. Commands scheduled by the executed commands are
+     * executed as well if they are due before <code>timeMillis</code>. If
+     * <code>timeMillis</code> lies in the past, only the commands which are
+     * due now are executed.
+     *
+     * @param timeMillis
+     * @return the number of executed commands
+     */
+    public int advanceTo(final long timeMillis)
+    {
+        int executed = 0;
+        Entry entry = peek();
+        while (entry != null && entry.due <= timeMillis)
+        {
+            fire(queue.poll());
+            executed++;
+            entry = peek();
+        }
+        now = Math.max(now, timeMillis);
+        return executed;
+    }
+
+
+    /**
+     * Moves the clock to the due time of the next command and executes it.
+     *
+     * @return <code>false</code> if no command was scheduled
+     */
+    public boolean runNext()
+    {
+        if (peek() == null)
+        {
+            return false;
+        }
+        fire(queue.poll());
+        return true;
+    }
+
+
+    /**
+     * Executes commands in the order of their due time until no command is
+     * scheduled or <code>maxCommands</code> commands have been executed. The
+     * limit guards against repeating tasks which would run forever.
+     *
+     * @param maxCommands
+     * @return the number of executed commands
+     */
+    public int runAll(final int maxCommands)
+    {
+        int executed = 0;
+        while (executed < maxCommands && runNext())
+        {
+            executed++;
+        }
+        return executed;
+    }
+
+
+    /**
+     * @return the due time of the next command or -1 if no command is
+     *         scheduled
+     */
+    public long nextDueTime()
+    {
+        Entry entry = peek();
+        return entry == null ? -1 : entry.due;
+    }
+
+
+    /**
+     * @return the number of scheduled tasks
+     */
+    public int size()
+    {
+        return scheduled;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    /**
+     * Removes stale entries from the head of the queue.
+     */
+    private Entry peek()
+    {
+        Entry entry = queue.peek();
+        while (entry != null && entry.generation != entry.task.generation)
+        {
+            queue.poll();
+            entry = queue.peek();
+        }
+        return entry;
+    }
+
+
+    private void fire(final Entry entry)
+    {
+        VirtualTask task = entry.task;
+        now = Math.max(now, entry.due);
+        if (task.period > 0)
+        {
+            enqueue(task, entry.due + task.period);
+        }
+        else
+        {
+            task.generation++;
+            task.active = false;
+            scheduled--;
+        }
+        task.command.execute();
+    }
+
+
+    private void enqueue(final VirtualTask task, final long due)
+    {
+        queue.add(new Entry(task, task.generation, due, sequence));
+        sequence++;
+    }
+
+    /**
+     * Task of this backend. Rescheduling or cancelling a task invalidates its
+     * queued entry by incrementing the generation.
+     */
+    final class VirtualTask implements Task
+    {
+        final Command command;
+        int generation;
+        int period;
+        boolean active;
+
+
+        VirtualTask(final Command command)
+        {
+            this.command = command;
+        }
+
+
+        public void schedule(final int delayMillis)
+        {
+            start(Math.max(0, delayMillis), 0);
+        }
+
+
+        public void scheduleRepeating(final int periodMillis)
+        {
+            if (periodMillis <= 0)
+            {
+                throw new IllegalArgumentException("Period must be greater than 0");
+            }
+            start(periodMillis, periodMillis);
+        }
+
+
+        public void scheduleFrame()
+        {
+            schedule(FRAME_MILLIS);
+        }
+
+
+        public void cancel()
+        {
+            if (active)
+            {
+                generation++;
+                active = false;
+                scheduled--;
+            }
+        }
+
+
+        private void start(final int delayMillis, final int periodMillis)
+        {
+            cancel();
+            period = periodMillis;
+            active = true;
+            scheduled++;
+            enqueue(this, now + delayMillis);
+        }
+    }
+
+    /**
+     * One scheduled execution of a task.
+     */
+    static final class Entry implements Comparable<Entry>
+    {
+        final VirtualTask task;
+        final int generation;
+        final long due;
+        final long sequence;
+
+
+        Entry(final VirtualTask task, final int generation, final long due, final long sequence)
+        {
+            this.task = task;
+            this.generation = generation;
+            this.due = due;
+            this.sequence = sequence;
+        }
+
+
+        public int compareTo(final Entry other)
+        {
+            if (due != other.due)
+            {
+                return due < other.due ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence > other.sequence ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package name.pehl.taputapu.ui.client.animation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.core.client.Duration;
+
+/**
+ * Drives all active {@link Transition}s from one animation frame loop. The
+ * loop only runs while there are active transitions.
+ * <p>
+ * In each frame the engine first lets all transitions write their styles and
+ * then completes the finished transitions. Layout properties read during
+ * completion therefore cause at most one reflow per frame, no matter how many
+ * transitions are running.
+ * <p>
+ * Starting a transition interrupts the running transition with the same key.
+ * The new transition takes over in the next frame, so several flips of the
+ * same panel within one frame only result in the last one.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public final class AnimationEngine implements AnimationCallback
+{
+    private static AnimationEngine instance;
+
+    private final List<Transition> active;
+    private final List<Transition> finished;
+    private final Map<Object, Transition> running;
+    private boolean frameRequested;
+
+
+    // ----------------------------------------------------------- constructors
+
+    private AnimationEngine()
+    {
+        this.active = new ArrayList<Transition>();
+        this.finished = new ArrayList<Transition>();
+        this.running = new HashMap<Object, Transition>();
+    }
+
+
+    /**
+     * @return the engine shared by all animations
+     */
+    public static AnimationEngine get()
+    {
+        if (instance == null)
+        {
+            instance = new AnimationEngine();
+        }
+        return instance;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Starts <code>transition</code> in the next frame. A running transition
+     * with the same key is interrupted.
+     *
+     * @param transition
+     */
+    public void start(final Transition transition)
+    {
+        assert transition != null;
+        assert !transition.started && !active.contains(transition);
+
+        Object key = transition.getKey();
+        if (key != null)
+        {
+            Transition previous = running.put(key, transition);
+            if (previous != null)
+            {
+                active.remove(previous);
+                // A transition which didn't start yet has nothing to take
+                // over, so pass on the one it would have interrupted.
+                transition.interrupted = previous.started ? previous : previous.interrupted;
+                previous.interrupted = null;
+            }
+        }
+        active.add(transition);
+        requestFrame();
+    }
+
+
+    /**
+     * @param key
+     * @return the transition which is running or about to start for
+     *         <code>key</code> or <code>null</code>
+     */
+    public Transition getRunning(final Object key)
+    {
+        return running.get(key);
+    }
+
+
+    /**
+     * @return the number of active transitions
+     */
+    public int size()
+    {
+        return active.size();
+    }
+
+
+    /**
+     * Processes one frame.
+     */
+    public void execute(final double timestamp)
+    {
+        frameRequested = false;
+        double now = Duration.currentTimeMillis();
+
+        // Phase 1: style writes
+        for (int i = 0; i < active.size(); i++)
+        {
+            Transition transition = active.get(i);
+            if (!transition.started)
+            {
+                Transition interrupted = transition.interrupted;
+                transition.interrupted = null;
+                transition.started = true;
+                transition.startTime = now;
+                if (!transition.onStart(interrupted))
+                {
+                    active.remove(i);
+                    i--;
+                    release(transition);
+                    continue;
+                }
+            }
+            int duration = transition.getDurationMillis();
+            double progress = duration <= 0 ? 1 : Math.min(1, (now - transition.startTime) / duration);
+            transition.progress = progress;
+            transition.onUpdate(progress);
+            if (progress >= 1)
+            {
+                finished.add(transition);
+            }
+        }
+
+        // Phase 2: completion, may read layout properties
+        if (!finished.isEmpty())
+        {
+            Transition[] done = finished.toArray(new Transition[finished.size()]);
+            finished.clear();
+            for (Transition transition : done)
+            {
+                active.remove(transition);
+                release(transition);
+            }
+            for (Transition transition : done)
+            {
+                transition.onComplete();
+            }
+        }
+
+        if (!active.isEmpty())
+        {
+            requestFrame();
+        }
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void release(final Transition transition)
+    {
+        Object key = transition.getKey();
+        if (key != null && running.get(key) == transition)
+        {
+            running.remove(key);
+        }
+    }
+
+
+    private void requestFrame()
+    {
+        if (!frameRequested)
+        {
+            frameRequested = true;
+            AnimationScheduler.get().requestAnimationFrame(this);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package name.pehl.taputapu.ui.client.animation;
+
+import com.google.gwt.user.client.ui.LayoutPanel;
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * Various animation methods.
+ * 
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public final class AnimationUtils
+{
+    /**
+     * The duration of {@link #flip(LayoutPanel, Widget, Direction)} in
+     * milliseconds.
+     */
+    public static final int FLIP_DURATION = 500;
+
+
+    private AnimationUtils()
+    {
+    }
+
+
+    /**
+     * Flips the first widget of <code>layoutPanel</code> with
+     * <code>widget</code> using a smooth animation. The animation is driven by
+     * the {@link AnimationEngine} together with all other running animations.
+     * If a flip of <code>layoutPanel</code> is already running, it is
+     * interrupted and the new flip continues from the current position.
+     * 
+     * @param layoutPanel
+     *            the animated layout
+     * @param widget
+     *            the widget to show
+     * @param direction
+     *            controls the direction of the animation
+     */
+    public static void flip(final LayoutPanel layoutPanel, final Widget widget, Direction direction)
+    {
+        flip(layoutPanel, widget, direction, new FlipOptions());
+    }
+
+
+    /**
+     * Flips the first widget of <code>layoutPanel</code> with
+     * <code>widget</code> using the specified options. On slow devices use
+     * {@link FlipOptions.Mode#TRANSFORM} which moves the widgets without
+     * laying them out in every frame.
+     * 
+     * @param layoutPanel
+     *            the animated layout
+     * @param widget
+     *            the widget to show
+     * @param direction
+     *            controls the direction of the animation
+     * @param options
+     *            duration, easing, mode and fading of the animation
+     */
+    public static void flip(final LayoutPanel layoutPanel, final Widget widget, Direction direction,
+            final FlipOptions options)
+    {
+        // saftey checks
+        if (layoutPanel == null || widget == null || options == null)
+        {
+            return;
+        }
+        AnimationEngine engine = AnimationEngine.get();
+        Transition running = engine.getRunning(layoutPanel);
+        if (running instanceof FlipTransition)
+        {
+            if (((FlipTransition) running).getIncoming() == widget)
+            {
+                return;
+            }
+        }
+        else if (layoutPanel.getWidgetCount() > 0 && layoutPanel.getWidget(0) == widget)
+        {
+            return;
+        }
+        engine.start(new FlipTransition(layoutPanel, widget, direction, options));
+    }
+
+    public enum Direction
+    {
+        LEFT_TO_RIGHT,
+        RIGHT_TO_LEFT,
+        TOP_TO_BOTTOM,
+        BOTTOM_TO_TOP,
+
+        /**
+         * Cross fades the widgets without moving them.
+         */
+        FADE;
+
+        /**
+         * @return the direction which undoes this direction
+         */
+        public Direction reverse()
+        {
+            switch (this)
+            {
+                case LEFT_TO_RIGHT:
+                    return RIGHT_TO_LEFT;
+                case RIGHT_TO_LEFT:
+                    return LEFT_TO_RIGHT;
+                case TOP_TO_BOTTOM:
+                    return BOTTOM_TO_TOP;
+                case BOTTOM_TO_TOP:
+                    return TOP_TO_BOTTOM;
+                default:
+                    return this;
+            }
+        }
+    }
+}
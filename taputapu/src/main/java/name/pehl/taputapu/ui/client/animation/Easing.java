@@ -0,0 +1,54 @@
+package name.pehl.taputapu.ui.client.animation;
+
+/**
+ * Maps the linear progress of a {@link Transition} to the progress of the
+ * animated values.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public interface Easing
+{
+    Easing LINEAR = new Easing()
+    {
+        public double interpolate(final double progress)
+        {
+            return progress;
+        }
+    };
+
+    Easing EASE_IN = new Easing()
+    {
+        public double interpolate(final double progress)
+        {
+            return progress * progress;
+        }
+    };
+
+    Easing EASE_OUT = new Easing()
+    {
+        public double interpolate(final double progress)
+        {
+            return 1 - (1 - progress) * (1 - progress);
+        }
+    };
+
+    /**
+     * Smooth ease in / ease out curve. This is the default easing.
+     */
+    Easing EASE_IN_OUT = new Easing()
+    {
+        public double interpolate(final double progress)
+        {
+            return (1 + Math.cos(Math.PI + progress * Math.PI)) / 2;
+        }
+    };
+
+
+    /**
+     * @param progress
+     *            the linear progress between 0 and 1
+     * @return the eased progress. Should be 0 for 0 and 1 for 1.
+     */
+    double interpolate(double progress);
+}
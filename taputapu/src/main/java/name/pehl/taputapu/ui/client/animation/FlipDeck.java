@@ -0,0 +1,400 @@
+package name.pehl.taputapu.ui.client.animation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import name.pehl.taputapu.ui.client.animation.AnimationUtils.Direction;
+
+import com.google.gwt.dom.client.Style;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.dom.client.Style.Visibility;
+import com.google.gwt.user.client.ui.LayoutPanel;
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * Flips between widgets identified by keys and keeps recently shown widgets
+ * attached to the panel instead of rebuilding them:
+ *
+ * <pre>
+ * FlipDeck&lt;String&gt; deck = new FlipDeck&lt;String&gt;(layoutPanel, 5, new FlipDeck.Factory&lt;String&gt;()
+ * {
+ *     {@code @}Override
+ *     public Widget create(String token)
+ *     {
+ *         return new ArticleView(token);
+ *     }
+ * });
+ * deck.show(&quot;intro&quot;, Direction.RIGHT_TO_LEFT);
+ * deck.preload(&quot;chapter1&quot;);
+ * ...
+ * deck.show(&quot;chapter1&quot;, Direction.RIGHT_TO_LEFT);
+ * deck.back();
+ * </pre>
+ *
+ * Widgets which slide out are hidden, but stay attached. At most
+ * <code>capacity</code> widgets are kept. When there are more, the least
+ * recently used widgets are removed from the panel, except the widget which
+ * is shown.
+ * <p>
+ * {@link #preload(Object)} attaches a widget and lets the browser lay it out,
+ * but keeps it invisible. The flip to a preloaded widget doesn't need to
+ * attach or lay out anything in its first frame. A good time to preload is
+ * while the application is idle.
+ * <p>
+ * The deck keeps a history of the shown keys. {@link #back()} and
+ * {@link #forward()} flip to the previous / next key using the reverse / the
+ * original direction and reuse the pooled widgets.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class FlipDeck<K>
+{
+    private final LayoutPanel layoutPanel;
+    private final int capacity;
+    private final Factory<K> factory;
+    private final Map<K, Widget> pool;
+    private final List<K> history;
+    private final List<Direction> directions;
+    private final Set<Widget> preloaded;
+    private final DeckStage stage;
+    private FlipOptions options;
+    private int position;
+    private K currentKey;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new deck.
+     *
+     * @param layoutPanel
+     *            the panel which shows the widgets. Should only be used by
+     *            this deck.
+     * @param capacity
+     *            the maximal number of widgets kept in the panel. Must be
+     *            greater than 0.
+     * @param factory
+     *            creates the widgets for keys which aren't pooled
+     */
+    public FlipDeck(final LayoutPanel layoutPanel, final int capacity, final Factory<K> factory)
+    {
+        assert layoutPanel != null;
+        assert capacity > 0;
+        assert factory != null;
+
+        this.layoutPanel = layoutPanel;
+        this.capacity = capacity;
+        this.factory = factory;
+        this.pool = new LinkedHashMap<K, Widget>(16, 0.75f, true);
+        this.history = new ArrayList<K>();
+        this.directions = new ArrayList<Direction>();
+        this.preloaded = new HashSet<Widget>();
+        this.stage = new DeckStage();
+        this.options = new FlipOptions();
+        this.position = -1;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Flips to the widget for <code>key</code> and records the key in the
+     * history. Forward entries of the history are dropped.
+     *
+     * @param key
+     * @param direction
+     */
+    public void show(final K key, final Direction direction)
+    {
+        assert key != null;
+        assert direction != null;
+
+        if (key.equals(currentKey))
+        {
+            return;
+        }
+        while (history.size() > position + 1)
+        {
+            history.remove(history.size() - 1);
+            directions.remove(directions.size() - 1);
+        }
+        history.add(key);
+        directions.add(direction);
+        position++;
+        flipTo(key, direction);
+    }
+
+
+    /**
+     * Flips back to the previous key of the history.
+     *
+     * @return <code>false</code> if there's no previous key
+     */
+    public boolean back()
+    {
+        if (position <= 0)
+        {
+            return false;
+        }
+        Direction direction = directions.get(position).reverse();
+        position--;
+        flipTo(history.get(position), direction);
+        return true;
+    }
+
+
+    /**
+     * Flips forward to the next key of the history.
+     *
+     * @return <code>false</code> if there's no next key
+     */
+    public boolean forward()
+    {
+        if (position >= history.size() - 1)
+        {
+            return false;
+        }
+        position++;
+        flipTo(history.get(position), directions.get(position));
+        return true;
+    }
+
+
+    /**
+     * Attaches the widget for <code>key</code> to the panel and lets the
+     * browser lay it out, but keeps it invisible. This applies to pooled
+     * widgets which are hidden as well, because hidden widgets aren't laid
+     * out. Shown and already preloaded widgets are left as they are.
+     *
+     * @param key
+     */
+    public void preload(final K key)
+    {
+        assert key != null;
+
+        Widget widget = widget(key);
+        if (!widget.isVisible())
+        {
+            style(widget).setVisibility(Visibility.HIDDEN);
+            layoutPanel.setWidgetVisible(widget, true);
+            preloaded.add(widget);
+        }
+        evict();
+    }
+
+
+    /**
+     * Removes the widget for <code>key</code> from the pool. If it's hidden,
+     * it is removed from the panel right away, otherwise when it slides out.
+     *
+     * @param key
+     */
+    public void evict(final K key)
+    {
+        if (key != null && !key.equals(currentKey))
+        {
+            Widget widget = pool.remove(key);
+            if (widget != null && isIdle(widget))
+            {
+                remove(widget);
+            }
+        }
+    }
+
+
+    /**
+     * @param key
+     * @return the pooled widget for <code>key</code> or <code>null</code>
+     */
+    public Widget getWidget(final K key)
+    {
+        return pool.get(key);
+    }
+
+
+    public K getCurrentKey()
+    {
+        return currentKey;
+    }
+
+
+    /**
+     * @return the number of pooled widgets
+     */
+    public int size()
+    {
+        return pool.size();
+    }
+
+
+    public boolean canGoBack()
+    {
+        return position > 0;
+    }
+
+
+    public boolean canGoForward()
+    {
+        return position < history.size() - 1;
+    }
+
+
+    /**
+     * @param options
+     *            the options used for all flips of this deck. Must not be
+     *            null!
+     */
+    public void setOptions(final FlipOptions options)
+    {
+        assert options != null;
+        this.options = options;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void flipTo(final K key, final Direction direction)
+    {
+        currentKey = key;
+        Widget widget = widget(key);
+        evict();
+        AnimationEngine.get().start(new FlipTransition(layoutPanel, stage, widget, direction, options));
+    }
+
+
+    /**
+     * Returns the pooled widget or creates and attaches a new hidden one.
+     */
+    private Widget widget(final K key)
+    {
+        Widget widget = pool.get(key);
+        if (widget == null)
+        {
+            widget = factory.create(key);
+            pool.put(key, widget);
+            if (layoutPanel.getWidgetIndex(widget) == -1)
+            {
+                layoutPanel.add(widget);
+                layoutPanel.setWidgetVisible(widget, false);
+            }
+        }
+        return widget;
+    }
+
+
+    /**
+     * Removes the least recently used widgets which exceed the capacity. The
+     * widget of the current key is never evicted.
+     */
+    private void evict()
+    {
+        Iterator<Map.Entry<K, Widget>> iterator = pool.entrySet().iterator();
+        while (pool.size() > capacity && iterator.hasNext())
+        {
+            Map.Entry<K, Widget> entry = iterator.next();
+            if (!entry.getKey().equals(currentKey))
+            {
+                iterator.remove();
+                if (isIdle(entry.getValue()))
+                {
+                    remove(entry.getValue());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return <code>true</code> if the widget is attached, but neither shown
+     *         nor part of a running flip
+     */
+    private boolean isIdle(final Widget widget)
+    {
+        return layoutPanel.getWidgetIndex(widget) != -1 && widget != stage.displayed
+                && (!widget.isVisible() || preloaded.contains(widget));
+    }
+
+
+    private void remove(final Widget widget)
+    {
+        preloaded.remove(widget);
+        layoutPanel.remove(widget);
+    }
+
+
+    private Style style(final Widget widget)
+    {
+        return layoutPanel.getWidgetContainerElement(widget).getStyle();
+    }
+
+    /**
+     * Creates the widgets of a {@link FlipDeck}.
+     *
+     * @param <K>
+     *            the type of the keys
+     */
+    public interface Factory<K>
+    {
+        Widget create(K key);
+    }
+
+    /**
+     * Hides outgoing widgets instead of removing them, unless they were
+     * evicted from the pool.
+     */
+    final class DeckStage implements FlipTransition.Stage
+    {
+        Widget displayed;
+
+
+        public Widget current()
+        {
+            return displayed;
+        }
+
+
+        public void show(final Widget widget)
+        {
+            if (layoutPanel.getWidgetIndex(widget) == -1)
+            {
+                layoutPanel.add(widget);
+            }
+            if (preloaded.remove(widget))
+            {
+                style(widget).clearVisibility();
+            }
+            if (!widget.isVisible())
+            {
+                layoutPanel.setWidgetVisible(widget, true);
+            }
+            displayed = widget;
+        }
+
+
+        public void retire(final Widget widget)
+        {
+            if (widget == displayed)
+            {
+                return;
+            }
+            if (pool.containsValue(widget))
+            {
+                layoutPanel.setWidgetLeftRight(widget, 0, Unit.PCT, 0, Unit.PCT);
+                layoutPanel.setWidgetTopBottom(widget, 0, Unit.PCT, 0, Unit.PCT);
+                layoutPanel.setWidgetVisible(widget, false);
+            }
+            else
+            {
+                remove(widget);
+            }
+        }
+    }
+}
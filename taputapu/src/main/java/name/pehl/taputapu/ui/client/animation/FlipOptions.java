@@ -0,0 +1,136 @@
+package name.pehl.taputapu.ui.client.animation;
+
+import name.pehl.taputapu.ui.client.animation.AnimationUtils.Direction;
+
+import com.google.gwt.user.client.ui.LayoutPanel;
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * Options for {@link AnimationUtils#flip(LayoutPanel, Widget, Direction, FlipOptions)}:
+ *
+ * <pre>
+ * AnimationUtils.flip(panel, widget, Direction.RIGHT_TO_LEFT, new FlipOptions().mode(FlipOptions.Mode.TRANSFORM)
+ *         .duration(300).easing(Easing.EASE_OUT).fade(true));
+ * </pre>
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public final class FlipOptions
+{
+    private int durationMillis;
+    private Easing easing;
+    private Mode mode;
+    private boolean fade;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates options with the defaults used by
+     * {@link AnimationUtils#flip(LayoutPanel, Widget, Direction)}.
+     */
+    public FlipOptions()
+    {
+        this.durationMillis = AnimationUtils.FLIP_DURATION;
+        this.easing = Easing.EASE_IN_OUT;
+        this.mode = Mode.LAYOUT;
+        this.fade = false;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * @param durationMillis
+     *            the duration of the flip in milliseconds
+     * @return this
+     */
+    public FlipOptions duration(final int durationMillis)
+    {
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+
+    /**
+     * @param easing
+     *            the easing of the flip. Must not be null!
+     * @return this
+     */
+    public FlipOptions easing(final Easing easing)
+    {
+        assert easing != null;
+        this.easing = easing;
+        return this;
+    }
+
+
+    /**
+     * @param mode
+     *            how the widgets are moved. Must not be null!
+     * @return this
+     */
+    public FlipOptions mode(final Mode mode)
+    {
+        assert mode != null;
+        this.mode = mode;
+        return this;
+    }
+
+
+    /**
+     * @param fade
+     *            whether to fade the widgets in and out while they move
+     * @return this
+     */
+    public FlipOptions fade(final boolean fade)
+    {
+        this.fade = fade;
+        return this;
+    }
+
+
+    public int getDurationMillis()
+    {
+        return durationMillis;
+    }
+
+
+    public Easing getEasing()
+    {
+        return easing;
+    }
+
+
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+
+    public boolean isFade()
+    {
+        return fade;
+    }
+
+    /**
+     * How the widgets are moved during a flip.
+     */
+    public enum Mode
+    {
+        /**
+         * Animates the <code>left</code> / <code>top</code> offsets of the
+         * layers. Works everywhere, but the browser has to lay out the
+         * widgets in every frame.
+         */
+        LAYOUT,
+
+        /**
+         * Animates <code>translate3d</code> transforms and the opacity which
+         * can be composited without layout. Falls back to {@link #LAYOUT} if
+         * the browser doesn't support transforms.
+         */
+        TRANSFORM
+    }
+}
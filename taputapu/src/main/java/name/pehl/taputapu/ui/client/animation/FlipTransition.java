@@ -0,0 +1,373 @@
+package name.pehl.taputapu.ui.client.animation;
+
+import name.pehl.taputapu.ui.client.animation.AnimationUtils.Direction;
+
+import com.google.gwt.dom.client.Style;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.user.client.ui.LayoutPanel;
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * Slides the current widget of a {@link LayoutPanel} out and another widget
+ * in. Used by
+ * {@link AnimationUtils#flip(LayoutPanel, Widget, Direction, FlipOptions)}
+ * and {@link FlipDeck}. Which widgets are added to and removed from the panel
+ * is decided by a {@link Stage}.
+ * <p>
+ * The panel isn't laid out during the transition. In
+ * {@linkplain FlipOptions.Mode#LAYOUT layout mode} the layers of the panel
+ * are set to their final position right away and the offsets of the container
+ * elements are written directly in every frame. In
+ * {@linkplain FlipOptions.Mode#TRANSFORM transform mode} the containers stay
+ * where they are and are moved by transforms, which the browser can composite
+ * without any layout. If requested, the opacity of the containers is animated
+ * as well. The panel is laid out once when the transition completes.
+ * <p>
+ * When a flip on the same axis is interrupted, the new flip continues from
+ * the current offsets of the interrupted one: the widget which was sliding in
+ * becomes the outgoing widget and a widget which was sliding out is brought
+ * back from where it is. A flip on the other axis or in the other mode first
+ * finishes the interrupted flip.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+final class FlipTransition extends Transition
+{
+    private final LayoutPanel layoutPanel;
+    private final Stage stage;
+    private final Widget incoming;
+    private final boolean vertical;
+    private final boolean transform;
+    private final boolean fade;
+    private final Easing easing;
+    private final boolean standStill;
+    private Widget outgoing;
+    private double inFrom;
+    private double outFrom;
+    private double outTo;
+    private double inAlphaFrom;
+    private double outAlphaFrom;
+    private boolean alpha;
+    private double position;
+
+
+    // ----------------------------------------------------------- constructors
+
+    FlipTransition(final LayoutPanel layoutPanel, final Widget widget, final Direction direction,
+            final FlipOptions options)
+    {
+        this(layoutPanel, new PanelStage(layoutPanel), widget, direction, options);
+    }
+
+
+    FlipTransition(final LayoutPanel layoutPanel, final Stage stage, final Widget widget, final Direction direction,
+            final FlipOptions options)
+    {
+        super(layoutPanel, options.getDurationMillis());
+        this.layoutPanel = layoutPanel;
+        this.stage = stage;
+        this.incoming = widget;
+        this.vertical = direction == Direction.TOP_TO_BOTTOM || direction == Direction.BOTTOM_TO_TOP;
+        this.transform = options.getMode() == FlipOptions.Mode.TRANSFORM && TransformSupport.isSupported();
+        this.fade = options.isFade() || direction == Direction.FADE;
+        this.easing = options.getEasing();
+        if (direction == Direction.FADE)
+        {
+            this.inFrom = 0;
+            this.outTo = 0;
+        }
+        else
+        {
+            boolean forward = direction == Direction.LEFT_TO_RIGHT || direction == Direction.TOP_TO_BOTTOM;
+            this.inFrom = forward ? -100 : 100;
+            this.outTo = forward ? 100 : -100;
+        }
+        this.outFrom = 0;
+        this.inAlphaFrom = fade ? 0 : 1;
+        this.outAlphaFrom = 1;
+        this.standStill = direction == Direction.FADE;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    Widget getIncoming()
+    {
+        return incoming;
+    }
+
+
+    // ------------------------------------------------------------------ hooks
+
+    @Override
+    protected boolean onStart(final Transition interrupted)
+    {
+        FlipTransition previous = interrupted instanceof FlipTransition ? (FlipTransition) interrupted : null;
+        if (previous != null && (previous.vertical != vertical || previous.transform != transform))
+        {
+            previous.onUpdate(1);
+            previous.onComplete();
+            previous = null;
+        }
+
+        if (previous == null)
+        {
+            outgoing = stage.current();
+            if (outgoing == incoming)
+            {
+                return false;
+            }
+        }
+        else if (previous.incoming == incoming)
+        {
+            // Same target: keep going from where the previous flip is
+            outgoing = previous.outgoing;
+            outFrom = previous.outOffset();
+            outAlphaFrom = previous.outAlpha();
+            inFrom = previous.inOffset();
+            inAlphaFrom = previous.inAlpha();
+        }
+        else
+        {
+            outgoing = previous.incoming;
+            outFrom = previous.inOffset();
+            outAlphaFrom = previous.inAlpha();
+            if (previous.outgoing == incoming)
+            {
+                inFrom = previous.outOffset();
+                inAlphaFrom = previous.outAlpha();
+            }
+            else if (previous.outgoing != null)
+            {
+                retire(previous.outgoing);
+            }
+        }
+
+        if (standStill)
+        {
+            // A plain fade leaves the outgoing widget where it is
+            outTo = outFrom;
+        }
+        alpha = fade || inAlphaFrom < 1 || outAlphaFrom < 1;
+
+        stage.show(incoming);
+        if (!transform)
+        {
+            setLayer(incoming, 0);
+            initContainer(incoming);
+            if (outgoing != null)
+            {
+                setLayer(outgoing, outTo);
+                initContainer(outgoing);
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    protected void onUpdate(final double progress)
+    {
+        position = easing.interpolate(progress);
+        setOffset(incoming, inOffset());
+        if (alpha)
+        {
+            setOpacity(incoming, inAlpha());
+        }
+        if (outgoing != null)
+        {
+            setOffset(outgoing, outOffset());
+            if (alpha)
+            {
+                setOpacity(outgoing, outAlpha());
+            }
+        }
+    }
+
+
+    @Override
+    protected void onComplete()
+    {
+        if (outgoing != null)
+        {
+            retire(outgoing);
+        }
+        clearStyles(incoming);
+        layoutPanel.forceLayout();
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    private void retire(final Widget widget)
+    {
+        clearStyles(widget);
+        stage.retire(widget);
+    }
+
+
+    private void clearStyles(final Widget widget)
+    {
+        Style style = layoutPanel.getWidgetContainerElement(widget).getStyle();
+        if (transform)
+        {
+            style.clearProperty(TransformSupport.getTransformProperty());
+        }
+        if (alpha)
+        {
+            style.clearOpacity();
+        }
+    }
+
+
+    private double inOffset()
+    {
+        return inFrom * (1 - position);
+    }
+
+
+    private double outOffset()
+    {
+        return outFrom + (outTo - outFrom) * position;
+    }
+
+
+    private double inAlpha()
+    {
+        return inAlphaFrom + (1 - inAlphaFrom) * position;
+    }
+
+
+    private double outAlpha()
+    {
+        return fade ? outAlphaFrom * (1 - position) : outAlphaFrom;
+    }
+
+
+    /**
+     * Sets the final position of the widget in the layout of the panel
+     * without laying it out.
+     */
+    private void setLayer(final Widget widget, final double offset)
+    {
+        if (vertical)
+        {
+            layoutPanel.setWidgetTopHeight(widget, offset, Unit.PCT, 100, Unit.PCT);
+        }
+        else
+        {
+            layoutPanel.setWidgetLeftWidth(widget, offset, Unit.PCT, 100, Unit.PCT);
+        }
+    }
+
+
+    /**
+     * Gives the container element of the widget the full size of the panel
+     * along the animated axis, so that only its offset has to be written in
+     * each frame.
+     */
+    private void initContainer(final Widget widget)
+    {
+        Style style = layoutPanel.getWidgetContainerElement(widget).getStyle();
+        if (vertical)
+        {
+            style.setHeight(100, Unit.PCT);
+            style.clearBottom();
+        }
+        else
+        {
+            style.setWidth(100, Unit.PCT);
+            style.clearRight();
+        }
+    }
+
+
+    /**
+     * Writes the current offset directly to the container element of the
+     * widget.
+     */
+    private void setOffset(final Widget widget, final double offset)
+    {
+        Style style = layoutPanel.getWidgetContainerElement(widget).getStyle();
+        if (transform)
+        {
+            style.setProperty(TransformSupport.getTransformProperty(), TransformSupport.translate(vertical, offset));
+        }
+        else if (vertical)
+        {
+            style.setTop(offset, Unit.PCT);
+        }
+        else
+        {
+            style.setLeft(offset, Unit.PCT);
+        }
+    }
+
+
+    private void setOpacity(final Widget widget, final double opacity)
+    {
+        layoutPanel.getWidgetContainerElement(widget).getStyle().setOpacity(opacity);
+    }
+
+    /**
+     * Manages which widgets are part of the panel.
+     */
+    interface Stage
+    {
+        /**
+         * @return the widget which is shown when a flip starts without
+         *         interrupting another one or <code>null</code>
+         */
+        Widget current();
+
+
+        /**
+         * Makes sure that <code>widget</code> is part of the panel and
+         * visible. Called when it starts to slide in.
+         */
+        void show(Widget widget);
+
+
+        /**
+         * Called when <code>widget</code> has slid out.
+         */
+        void retire(Widget widget);
+    }
+
+    /**
+     * Stage of a plain panel: the first widget is the current one, outgoing
+     * widgets are removed.
+     */
+    static final class PanelStage implements Stage
+    {
+        private final LayoutPanel layoutPanel;
+
+
+        PanelStage(final LayoutPanel layoutPanel)
+        {
+            this.layoutPanel = layoutPanel;
+        }
+
+
+        public Widget current()
+        {
+            return layoutPanel.getWidgetCount() > 0 ? layoutPanel.getWidget(0) : null;
+        }
+
+
+        public void show(final Widget widget)
+        {
+            if (layoutPanel.getWidgetIndex(widget) == -1)
+            {
+                layoutPanel.add(widget);
+            }
+        }
+
+
+        public void retire(final Widget widget)
+        {
+            layoutPanel.remove(widget);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package name.pehl.taputapu.ui.client.animation;
+
+/**
+ * Detects whether and under which name the browser supports CSS transforms.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+final class TransformSupport
+{
+    private static final String[] PREFIXES = new String[] {"", "Webkit", "Moz", "ms", "O"};
+
+    private static boolean detected;
+    private static String transformProperty;
+    private static boolean threeD;
+
+
+    private TransformSupport()
+    {
+    }
+
+
+    /**
+     * @return <code>true</code> if the browser supports 2D transforms
+     */
+    static boolean isSupported()
+    {
+        detect();
+        return transformProperty != null;
+    }
+
+
+    /**
+     * @return the name of the transform property for
+     *         {@link com.google.gwt.dom.client.Style#setProperty(String, String)}
+     *         or <code>null</code> if transforms are not supported
+     */
+    static String getTransformProperty()
+    {
+        detect();
+        return transformProperty;
+    }
+
+
+    /**
+     * Returns a translation by <code>offset</code> percent of the size of the
+     * element. Uses <code>translate3d</code> where available, so that the
+     * element gets its own compositing layer.
+     *
+     * @param vertical
+     * @param offset
+     * @return the value for the transform property
+     */
+    static String translate(final boolean vertical, final double offset)
+    {
+        detect();
+        String x = vertical ? "0" : offset + "%";
+        String y = vertical ? offset + "%" : "0";
+        if (threeD)
+        {
+            return "translate3d(" + x + "," + y + ",0)";
+        }
+        return "translate(" + x + "," + y + ")";
+    }
+
+
+    private static void detect()
+    {
+        if (!detected)
+        {
+            detected = true;
+            for (String prefix : PREFIXES)
+            {
+                String transform = prefix.length() == 0 ? "transform" : prefix + "Transform";
+                if (hasStyleProperty(transform))
+                {
+                    transformProperty = transform;
+                    threeD = hasStyleProperty(prefix.length() == 0 ? "perspective" : prefix + "Perspective");
+                    break;
+                }
+            }
+        }
+    }
+
+
+    private static native boolean hasStyleProperty(String name)
+    /*-{
+        return $doc.createElement('div').style[name] !== undefined;
+    }-*/;
+}
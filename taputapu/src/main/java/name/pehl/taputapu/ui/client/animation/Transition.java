@@ -0,0 +1,126 @@
+package name.pehl.taputapu.ui.client.animation;
+
+/**
+ * Base class for transitions driven by the {@link AnimationEngine}. The engine
+ * calls the hooks of all active transitions in two phases per frame:
+ * <ol>
+ * <li>{@link #onStart(Transition)} and {@link #onUpdate(double)}. These
+ * methods should only write styles and must not read any layout properties
+ * like <code>offsetWidth</code>.
+ * <li>{@link #onComplete()} for all transitions which reached their end. This
+ * method may read layout properties, since all writes of the frame have
+ * already been done.
+ * </ol>
+ * Transitions with the same {@linkplain #getKey() key} (typically the animated
+ * panel) exclude each other. Starting a transition interrupts the running
+ * transition with the same key, which is passed to
+ * {@link #onStart(Transition)} so that the new transition can take over its
+ * current state.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public abstract class Transition
+{
+    private final Object key;
+    private final int durationMillis;
+
+    // managed by the engine
+    boolean started;
+    double startTime;
+    double progress;
+    Transition interrupted;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * @param key
+     *            the object which is animated. May be <code>null</code> if the
+     *            transition doesn't exclude other transitions.
+     * @param durationMillis
+     *            the duration in milliseconds
+     */
+    protected Transition(final Object key, final int durationMillis)
+    {
+        this.key = key;
+        this.durationMillis = durationMillis;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    public Object getKey()
+    {
+        return key;
+    }
+
+
+    public int getDurationMillis()
+    {
+        return durationMillis;
+    }
+
+
+    /**
+     * @return the linear progress between 0 and 1 as of the last frame
+     */
+    public double getProgress()
+    {
+        return progress;
+    }
+
+
+    public boolean isStarted()
+    {
+        return started;
+    }
+
+
+    // ------------------------------------------------------------------ hooks
+
+    /**
+     * Called in the first frame of this transition. Sets up the initial
+     * state.
+     *
+     * @param interrupted
+     *            the running transition with the same key which was
+     *            interrupted by this transition or <code>null</code>. The
+     *            interrupted transition won't receive any further calls.
+     * @return <code>false</code> if there's nothing to animate. The
+     *         transition is dropped without calling {@link #onComplete()}.
+     */
+    protected abstract boolean onStart(Transition interrupted);
+
+
+    /**
+     * Called in every frame including the first and the last one.
+     *
+     * @param progress
+     *            the linear progress between 0 and 1
+     */
+    protected abstract void onUpdate(double progress);
+
+
+    /**
+     * Called after the last update once all style writes of the frame are
+     * done.
+     */
+    protected void onComplete()
+    {
+    }
+
+
+    /**
+     * Maps the linear progress to a smooth ease in / ease out curve.
+     *
+     * @param progress
+     *            the linear progress between 0 and 1
+     * @return the eased progress between 0 and 1
+     * @see Easing#EASE_IN_OUT
+     */
+    protected double interpolate(final double progress)
+    {
+        return Easing.EASE_IN_OUT.interpolate(progress);
+    }
+}
@@ -0,0 +1,73 @@
+package name.pehl.taputapu.action.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import name.pehl.taputapu.action.client.ParallelActionTest.Counter;
+import name.pehl.taputapu.action.client.ParallelActionTest.Deferred;
+
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests {@link ActionGraph}.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ActionGraphTest
+{
+    @Test
+    public void repeatedCallbacksOfOneNodeAreIgnored()
+    {
+        ActionGraph graph = new ActionGraph();
+        Deferred slow = new Deferred();
+        Counting first = new Counting();
+        Counting second = new Counting();
+        graph.add(slow);
+        ActionGraph.Node noisy = graph.add(new ChainedAction()
+        {
+            @Override
+            public void execute(final Iterator<ChainedAction> iterator, final Context context,
+                    final Command onSuccess, final Command onError)
+            {
+                next(iterator, context, onSuccess, onError);
+                next(iterator, context, onSuccess, onError);
+                exit(context, onError);
+                exit(context, onSuccess);
+            }
+        });
+        graph.add(first).after(noisy);
+        graph.add(second).after(noisy);
+
+        Counter success = new Counter();
+        Counter error = new Counter();
+        new ChainedActionList(graph).start(success, error);
+        assertEquals(1, first.executions);
+        assertEquals(1, second.executions);
+        assertEquals(0, success.count + error.count);
+
+        slow.complete();
+        assertEquals(1, success.count);
+        assertEquals(0, error.count);
+    }
+
+    /**
+     * Action which counts its executions and continues.
+     */
+    static class Counting extends ChainedAction
+    {
+        int executions;
+
+
+        @Override
+        public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+                final Command onError)
+        {
+            executions++;
+            next(iterator, context, onSuccess, onError);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package name.pehl.taputapu.action.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import name.pehl.taputapu.action.client.ActionGraphTest.Counting;
+
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests {@link BatchRunner}.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class BatchRunnerTest
+{
+    static final Context.Key<Boolean> CANCEL = new Context.Key<Boolean>("cancel");
+    static final Context.Key<Boolean> FAIL = new Context.Key<Boolean>("fail");
+
+
+    @Test
+    public void cancelFromAnItemWhichIsStartingStopsItsRun()
+    {
+        final BatchRunner.Batch[] batch = new BatchRunner.Batch[1];
+        final List<Object[]> calls = new ArrayList<Object[]>();
+        Counting after = new Counting();
+        ChainedActionList chain = new ChainedActionList(new ChainedAction()
+        {
+            @Override
+            public void execute(final Iterator<ChainedAction> iterator, final Context context,
+                    final Command onSuccess, final Command onError)
+            {
+                if (context.get(CANCEL) != null)
+                {
+                    batch[0].cancel();
+                }
+                calls.add(new Object[] {iterator, context, onSuccess, onError});
+            }
+        }, after);
+        Context second = new Context();
+        second.put(CANCEL, true);
+        batch[0] = new BatchRunner(chain, 1).run(Arrays.asList(new Context(), second), null);
+
+        complete(calls.get(0));
+        assertEquals(1, after.executions);
+        assertEquals(2, calls.size());
+        assertTrue(batch[0].isCanceled());
+
+        complete(calls.get(1));
+        assertEquals(1, after.executions);
+        assertEquals(1, batch[0].getCompleted());
+    }
+
+
+    @Test(expected = AssertionError.class)
+    public void nullItemsAreRejected()
+    {
+        new BatchRunner(new ChainedActionList(new Counting()), 1).run(Arrays.asList(new Context(), null), null);
+    }
+
+
+    @Test
+    public void failuresRecordTheItemsAndTheError()
+    {
+        final IllegalStateException error = new IllegalStateException();
+        ChainedActionList chain = new ChainedActionList(new ChainedAction()
+        {
+            @Override
+            public void execute(final Iterator<ChainedAction> iterator, final Context context,
+                    final Command onSuccess, final Command onError)
+            {
+                for (Context item : context.get(BatchRunner.ITEMS))
+                {
+                    if (item.get(FAIL) != null)
+                    {
+                        context.put(BatchRunner.ERROR, error);
+                        exit(context, onError);
+                        return;
+                    }
+                }
+                next(iterator, context, onSuccess, onError);
+            }
+        });
+        List<Context> items = new ArrayList<Context>();
+        for (int i = 0; i < 4; i++)
+        {
+            items.add(new Context());
+        }
+        items.get(3).put(FAIL, true);
+        BatchRunner.Batch batch = new BatchRunner(chain, 1, 2).run(items, null);
+
+        assertTrue(batch.isComplete());
+        assertEquals(items.subList(0, 2), batch.getSucceeded());
+        assertEquals(items.subList(2, 4), batch.getFailed());
+        List<BatchRunner.Failure> failures = batch.getFailures();
+        assertEquals(2, failures.size());
+        for (int i = 0; i < 2; i++)
+        {
+            BatchRunner.Failure failure = failures.get(i);
+            assertEquals(2 + i, failure.getIndex());
+            assertSame(items.get(2 + i), failure.getContext());
+            assertSame(error, failure.getError());
+        }
+    }
+
+
+    @Test
+    public void failuresWithoutErrorHaveNoCause()
+    {
+        ChainedActionList chain = new ChainedActionList(new ChainedAction()
+        {
+            @Override
+            public void execute(final Iterator<ChainedAction> iterator, final Context context,
+                    final Command onSuccess, final Command onError)
+            {
+                exit(context, onError);
+            }
+        });
+        BatchRunner.Batch batch = new BatchRunner(chain, 1).run(Arrays.asList(new Context()), null);
+
+        assertEquals(1, batch.getFailures().size());
+        assertNull(batch.getFailures().get(0).getError());
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void complete(final Object[] call)
+    {
+        new Counting().next((Iterator<ChainedAction>) call[0], (Context) call[1], (Command) call[2],
+                (Command) call[3]);
+    }
+}
@@ -0,0 +1,153 @@
+package name.pehl.taputapu.action.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import name.pehl.taputapu.action.client.ParallelActionTest.Counter;
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests {@link CachingAction}.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class CachingActionTest
+{
+    static final Context.Key<String> INPUT = new Context.Key<String>("input");
+    static final Context.Key<Integer> OUTPUT = new Context.Key<Integer>("output");
+
+
+    @Test
+    public void entriesExpireOnTheBackendClock()
+    {
+        VirtualTimerBackend backend = new VirtualTimerBackend();
+        Loader loader = new Loader();
+        ChainedActionList list = new ChainedActionList(new CachingAction(loader, new Context.Key<?>[] {INPUT},
+                new Context.Key<?>[] {OUTPUT}, 1000, 0, backend));
+
+        assertEquals(1, run(list));
+        backend.advance(999);
+        assertEquals(1, run(list));
+        backend.advance(1);
+        assertEquals(2, run(list));
+        assertEquals(2, loader.executions);
+    }
+
+
+    @Test
+    public void canceledOwnerHandsTheExecutionToAWaitingChain()
+    {
+        Pending loader = new Pending();
+        CachingAction caching = new CachingAction(loader, new Context.Key<?>[] {INPUT},
+                new Context.Key<?>[] {OUTPUT});
+        ChainedActionList list = new ChainedActionList(caching);
+        Counter ownerSuccess = new Counter();
+        Counter waiterSuccess = new Counter();
+        Counter error = new Counter();
+        ChainHandle owner = list.start(context(), ownerSuccess, error);
+        Context waiterContext = context();
+        list.start(waiterContext, waiterSuccess, error);
+        assertEquals(1, loader.calls.size());
+
+        owner.cancel();
+        assertEquals(2, loader.calls.size());
+
+        // the action of the canceled chain calls back anyway: ignored
+        loader.complete(0, 1);
+        assertEquals(0, waiterSuccess.count);
+        assertEquals(0, caching.size());
+
+        loader.complete(1, 2);
+        assertEquals(1, waiterSuccess.count);
+        assertEquals(0, ownerSuccess.count);
+        assertEquals(0, error.count);
+        assertEquals(2, (int) waiterContext.get(OUTPUT));
+        assertEquals(1, caching.size());
+    }
+
+
+    @Test
+    public void canceledOwnerReleasesTheInputs()
+    {
+        Pending loader = new Pending();
+        ChainedActionList list = new ChainedActionList(new CachingAction(loader, new Context.Key<?>[] {INPUT},
+                new Context.Key<?>[] {OUTPUT}));
+        list.start(context(), new Counter()).cancel();
+
+        Counter success = new Counter();
+        list.start(context(), success);
+        assertEquals(2, loader.calls.size());
+        loader.complete(1, 1);
+        assertEquals(1, success.count);
+    }
+
+
+    private Context context()
+    {
+        Context context = new Context();
+        context.put(INPUT, "a");
+        return context;
+    }
+
+
+    private int run(final ChainedActionList list)
+    {
+        Context context = context();
+        Counter success = new Counter();
+        list.start(context, success);
+        assertEquals(1, success.count);
+        return context.get(OUTPUT);
+    }
+
+    /**
+     * Action which completes when {@link #complete(int, int)} is called.
+     */
+    static class Pending extends ChainedAction
+    {
+        final List<Object[]> calls = new ArrayList<Object[]>();
+
+
+        @Override
+        public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+                final Command onError)
+        {
+            calls.add(new Object[] {iterator, context, onSuccess, onError});
+        }
+
+
+        @SuppressWarnings("unchecked")
+        void complete(final int call, final int output)
+        {
+            Object[] args = calls.get(call);
+            Context context = (Context) args[1];
+            context.put(OUTPUT, output);
+            next((Iterator<ChainedAction>) args[0], context, (Command) args[2], (Command) args[3]);
+        }
+    }
+
+    /**
+     * Action which puts the number of its executions into the context.
+     */
+    static class Loader extends ChainedAction
+    {
+        int executions;
+
+
+        @Override
+        public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+                final Command onError)
+        {
+            executions++;
+            context.put(OUTPUT, executions);
+            next(iterator, context, onSuccess, onError);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package name.pehl.taputapu.action.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import name.pehl.taputapu.action.client.ParallelActionTest.Counter;
+import name.pehl.taputapu.action.client.ParallelActionTest.Deferred;
+
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests that runs of a {@link ChainPlan} which reuse a cursor aren't affected
+ * by callbacks of earlier runs.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ChainPlanTest
+{
+    @Test
+    public void staleCallbacksAreIgnored()
+    {
+        Deferred deferred = new Deferred();
+        Counter after = new Counter();
+        ChainPlan plan = new ChainedActionList(deferred, action(after)).compile();
+        Counter first = new Counter();
+        plan.start(first, first);
+        Iterator<ChainedAction> staleIterator = deferred.iterator;
+        Context staleContext = deferred.context;
+        Command staleSuccess = deferred.onSuccess;
+        Command staleError = deferred.onError;
+        deferred.complete();
+        assertEquals(1, first.count);
+
+        Counter second = new Counter();
+        plan.start(second, second);
+        assertEquals(1, plan.getActiveRuns());
+        assertTrue(staleIterator != deferred.iterator);
+        assertTrue(deferred.isCanceled(staleIterator));
+        assertFalse(deferred.isCanceled(deferred.iterator));
+
+        deferred.next(staleIterator, staleContext, staleSuccess, staleError);
+        staleSuccess.execute();
+        staleError.execute();
+        assertEquals(1, after.count);
+        assertEquals(1, first.count);
+        assertEquals(0, second.count);
+        assertEquals(1, plan.getActiveRuns());
+
+        deferred.complete();
+        assertEquals(2, after.count);
+        assertEquals(1, second.count);
+        assertEquals(0, plan.getActiveRuns());
+    }
+
+
+    @Test
+    public void repeatedCallbackOfAFinishedRunIsIgnored()
+    {
+        Deferred deferred = new Deferred();
+        Counter after = new Counter();
+        ChainPlan plan = new ChainedActionList(deferred, action(after)).compile();
+        Counter success = new Counter();
+        plan.start(success, success);
+        deferred.complete();
+        deferred.complete();
+
+        assertEquals(1, after.count);
+        assertEquals(1, success.count);
+    }
+
+
+    private ChainedAction action(final Command command)
+    {
+        return new ChainedAction()
+        {
+            @Override
+            public void execute(final Iterator<ChainedAction> iterator, final Context context,
+                    final Command onSuccess, final Command onError)
+            {
+                command.execute();
+                next(iterator, context, onSuccess, onError);
+            }
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package name.pehl.taputapu.action.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import name.pehl.taputapu.action.client.ActionGraphTest.Counting;
+import name.pehl.taputapu.action.client.ParallelActionTest.Counter;
+import name.pehl.taputapu.action.client.ParallelActionTest.Deferred;
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link ChainTracer} takes its times from the clock of the
+ * backend.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ChainTracerTest
+{
+    @Test
+    public void recordsVirtualTimes()
+    {
+        VirtualTimerBackend backend = new VirtualTimerBackend();
+        backend.advance(100);
+        ChainTracer tracer = new ChainTracer(4, backend);
+        Deferred action = new Deferred();
+        ChainedActionList list = new ChainedActionList(action);
+        list.setTracer(tracer);
+        Counter success = new Counter();
+        list.start(success);
+
+        backend.advance(250);
+        action.complete();
+
+        assertEquals(1, success.count);
+        List<ActionTrace> traces = tracer.dump();
+        assertEquals(1, traces.size());
+        ActionTrace trace = traces.get(0);
+        assertEquals(100, trace.getStart(), 0);
+        assertEquals(350, trace.getEnd(), 0);
+        assertEquals(250, trace.getDuration(), 0);
+        assertTrue(trace.isAsync());
+    }
+
+
+    @Test
+    public void recordsSubMillisecondDurations()
+    {
+        VirtualTimerBackend backend = new VirtualTimerBackend()
+        {
+            double time;
+
+
+            @Override
+            public double highResolutionTimeMillis()
+            {
+                time += 0.25;
+                return time;
+            }
+        };
+        ChainedActionList list = new ChainedActionList(new Counting(), new Counting());
+        ChainTracer tracer = new ChainTracer(4, backend);
+        list.setTracer(tracer);
+        list.start(new Counter());
+
+        List<ActionTrace> traces = tracer.dump();
+        assertEquals(2, traces.size());
+        for (ActionTrace trace : traces)
+        {
+            assertEquals(0.25, trace.getDuration(), 0);
+            assertFalse(trace.isAsync());
+        }
+    }
+}
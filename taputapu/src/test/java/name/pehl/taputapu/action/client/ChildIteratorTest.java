@@ -0,0 +1,107 @@
+package name.pehl.taputapu.action.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import name.pehl.taputapu.action.client.ParallelActionTest.Counter;
+import name.pehl.taputapu.action.client.ParallelActionTest.Deferred;
+import name.pehl.taputapu.timer.client.TimerService;
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests that actions executed by other actions behave like actions of the
+ * chain.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ChildIteratorTest
+{
+    TimerService timerService;
+    Counter success;
+    Counter error;
+    Counter last;
+
+
+    @Before
+    public void setUp()
+    {
+        timerService = new TimerService(new VirtualTimerBackend());
+        success = new Counter();
+        error = new Counter();
+        last = new Counter();
+    }
+
+
+    @Test
+    public void wrappedActionSeesCancel()
+    {
+        Deferred deferred = new Deferred();
+        ChainHandle handle = new ChainedActionList(new TimeoutAction(deferred, 1000, timerService)).start(success,
+                error);
+        assertFalse(deferred.isCanceled(deferred.iterator));
+
+        handle.cancel();
+        assertTrue(deferred.isCanceled(deferred.iterator));
+    }
+
+
+    @Test
+    public void wrappedActionEndsChain()
+    {
+        ChainedAction exit = new ChainedAction()
+        {
+            @Override
+            public void execute(final Iterator<ChainedAction> iterator, final Context context,
+                    final Command onSuccess, final Command onError)
+            {
+                exit(context, onSuccess);
+            }
+        };
+        new ChainedActionList(new RetryAction(exit, 3, 10, timerService), action(last)).start(success, error);
+        new ChainedActionList(new TimeoutAction(exit, 10, timerService), action(last)).start(success, error);
+        new ChainedActionList(new ParallelAction(exit), action(last)).start(success, error);
+
+        assertEquals(3, success.count);
+        assertEquals(0, error.count);
+        assertEquals(0, last.count);
+        assertEquals(0, timerService.size());
+    }
+
+
+    @Test
+    public void wrappedActionContinuesChain()
+    {
+        Deferred deferred = new Deferred();
+        new ChainedActionList(new TimeoutAction(deferred, 1000, timerService), action(last)).start(success, error);
+        deferred.complete();
+        deferred.complete();
+
+        assertEquals(1, last.count);
+        assertEquals(1, success.count);
+        assertEquals(0, timerService.size());
+    }
+
+
+    private ChainedAction action(final Command command)
+    {
+        return new ChainedAction()
+        {
+            @Override
+            public void execute(final Iterator<ChainedAction> iterator, final Context context,
+                    final Command onSuccess, final Command onError)
+            {
+                command.execute();
+                next(iterator, context, onSuccess, onError);
+            }
+        };
+    }
+}
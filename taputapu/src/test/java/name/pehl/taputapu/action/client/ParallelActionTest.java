@@ -0,0 +1,98 @@
+package name.pehl.taputapu.action.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests {@link ParallelAction}.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ParallelActionTest
+{
+    @Test
+    public void repeatedCallbacksOfOneChildAreIgnored()
+    {
+        Deferred slow = new Deferred();
+        ChainedAction twice = new ChainedAction()
+        {
+            @Override
+            public void execute(final Iterator<ChainedAction> iterator, final Context context,
+                    final Command onSuccess, final Command onError)
+            {
+                next(iterator, context, onSuccess, onError);
+                next(iterator, context, onSuccess, onError);
+            }
+        };
+        Counter success = new Counter();
+        new ChainedActionList(new ParallelAction(twice, slow)).start(success);
+        assertEquals(0, success.count);
+
+        slow.complete();
+        assertEquals(1, success.count);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void quorumOfZeroIsRejected()
+    {
+        new ParallelAction(0, new Deferred(), new Deferred());
+    }
+
+
+    @Test
+    public void noActionsContinueTheChain()
+    {
+        Counter success = new Counter();
+        new ChainedActionList(new ParallelAction(), new ParallelAction(0)).start(success);
+        assertEquals(1, success.count);
+    }
+
+    /**
+     * Action which succeeds when {@link #complete()} is called.
+     */
+    static class Deferred extends ChainedAction
+    {
+        Iterator<ChainedAction> iterator;
+        Context context;
+        Command onSuccess;
+        Command onError;
+
+
+        @Override
+        public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+                final Command onError)
+        {
+            this.iterator = iterator;
+            this.context = context;
+            this.onSuccess = onSuccess;
+            this.onError = onError;
+        }
+
+
+        void complete()
+        {
+            next(iterator, context, onSuccess, onError);
+        }
+    }
+
+    /**
+     * Counts its executions.
+     */
+    static class Counter implements Command
+    {
+        int count;
+
+
+        @Override
+        public void execute()
+        {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package name.pehl.taputapu.testing;
+
+import java.util.Random;
+
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Simulates asynchronous calls (RPCs, requests, ...) on a
+ * {@link VirtualTimerBackend}. Each call completes after a random latency
+ * which is drawn from a seeded {@link Random}. Thus the completions of
+ * concurrent calls interleave randomly, but the same seed always yields the
+ * same interleaving:
+ *
+ * <pre>
+ * VirtualTimerBackend backend = new VirtualTimerBackend();
+ * AsyncSimulator simulator = new AsyncSimulator(backend, 42, 1, 100);
+ * simulator.complete(callback); // executed in 1 - 100 ms
+ * backend.advance(100);
+ * </pre>
+ *
+ * The {@linkplain #getFingerprint() fingerprint} reflects the order of all
+ * completions and can be used to verify that two runs were identical.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class AsyncSimulator
+{
+    private final VirtualTimerBackend backend;
+    private final Random random;
+    private final int minLatencyMillis;
+    private final int maxLatencyMillis;
+    private int submitted;
+    private int pending;
+    private long fingerprint;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new simulator.
+     *
+     * @param backend
+     *            the backend which executes the completions
+     * @param seed
+     *            the seed of the latencies
+     * @param minLatencyMillis
+     *            the minimal latency. Must not be negative.
+     * @param maxLatencyMillis
+     *            the maximal latency. Must not be less than
+     *            <code>minLatencyMillis</code>.
+     */
+    public AsyncSimulator(final VirtualTimerBackend backend, final long seed, final int minLatencyMillis,
+            final int maxLatencyMillis)
+    {
+        assert backend != null;
+        assert minLatencyMillis >= 0;
+        assert maxLatencyMillis >= minLatencyMillis;
+
+        this.backend = backend;
+        this.random = new Random(seed);
+        this.minLatencyMillis = minLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Executes <code>callback</code> after a random latency.
+     *
+     * @param callback
+     */
+    public void complete(final Command callback)
+    {
+        complete(nextLatency(), callback);
+    }
+
+
+    /**
+     * Executes <code>callback</code> after <code>latencyMillis</code>.
+     *
+     * @param latencyMillis
+     * @param callback
+     */
+    public void complete(final int latencyMillis, final Command callback)
+    {
+        assert callback != null;
+
+        final int id = submitted;
+        submitted++;
+        pending++;
+        backend.createTask(new Command()
+        {
+            @Override
+            public void execute()
+            {
+                pending--;
+                fingerprint = 31 * fingerprint + id;
+                callback.execute();
+            }
+        }).schedule(latencyMillis);
+    }
+
+
+    /**
+     * @return the next random latency
+     */
+    public int nextLatency()
+    {
+        return minLatencyMillis + random.nextInt(maxLatencyMillis - minLatencyMillis + 1);
+    }
+
+
+    /**
+     * @return the random generator of this simulator. Scenarios which use it
+     *         for their own decisions stay reproducible.
+     */
+    public Random getRandom()
+    {
+        return random;
+    }
+
+
+    public VirtualTimerBackend getBackend()
+    {
+        return backend;
+    }
+
+
+    /**
+     * @return the number of calls which haven't completed yet
+     */
+    public int getPending()
+    {
+        return pending;
+    }
+
+
+    /**
+     * @return the number of calls passed to {@link #complete(Command)}
+     */
+    public int getSubmitted()
+    {
+        return submitted;
+    }
+
+
+    /**
+     * @return a hash over the order of all completions so far
+     */
+    public long getFingerprint()
+    {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,269 @@
+package name.pehl.taputapu.testing;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import name.pehl.taputapu.action.client.ChainHandle;
+import name.pehl.taputapu.action.client.ChainedAction;
+import name.pehl.taputapu.action.client.ChainedActionList;
+import name.pehl.taputapu.action.client.Context;
+import name.pehl.taputapu.timer.client.TimerService;
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Runs a large number of concurrent {@link ChainedActionList} chains whose
+ * actions complete asynchronously through an {@link AsyncSimulator}. The
+ * chains are started while others are running, a random part of them is
+ * canceled and chains which exceed the timeout are aborted. Checks that
+ * <ul>
+ * <li>the actions of each chain run in order and only while the chain is
+ * running,
+ * <li>each chain ends exactly once: successfully after its last action, with
+ * an error after a timeout or silently after a cancel,
+ * <li>no timeout timer is left over and the contexts can be garbage
+ * collected.
+ * </ul>
+ * The recorded latency is the virtual duration of each successful chain.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ChainStressScenario extends StressScenario
+{
+    /**
+     * Chains are started in batches of this size. The clock moves on between
+     * batches.
+     */
+    static final int BATCH = 100;
+
+    /**
+     * Every n-th context is tracked for garbage collection.
+     */
+    static final int TRACK_EVERY = 100;
+
+    static final Context.Key<Integer> CHAIN = new Context.Key<Integer>("chain");
+
+    private final int chains;
+    private final int length;
+    private final int minLatencyMillis;
+    private final int maxLatencyMillis;
+    private final double cancelRatio;
+    private final int timeoutMillis;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new scenario.
+     *
+     * @param seed
+     * @param chains
+     *            the number of chains
+     * @param length
+     *            the number of actions per chain
+     * @param minLatencyMillis
+     *            the minimal latency of an action
+     * @param maxLatencyMillis
+     *            the maximal latency of an action
+     * @param cancelRatio
+     *            the part of the chains which are canceled, between 0 and 1
+     * @param timeoutMillis
+     *            the timeout of the chains or 0 for no timeout
+     */
+    public ChainStressScenario(final long seed, final int chains, final int length, final int minLatencyMillis,
+            final int maxLatencyMillis, final double cancelRatio, final int timeoutMillis)
+    {
+        super("chains (" + chains + " x " + length + ")", seed);
+        this.chains = chains;
+        this.length = length;
+        this.minLatencyMillis = minLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.cancelRatio = cancelRatio;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    @Override
+    protected void execute(final StressReport report)
+    {
+        VirtualTimerBackend backend = new VirtualTimerBackend();
+        TimerService timerService = new TimerService(backend);
+        AsyncSimulator simulator = new AsyncSimulator(backend, getSeed(), minLatencyMillis, maxLatencyMillis);
+        Random random = simulator.getRandom();
+        Recorder recorder = new Recorder(report, backend, chains, length);
+
+        ChainedAction[] actions = new ChainedAction[length];
+        for (int i = 0; i < length; i++)
+        {
+            actions[i] = new Step(recorder, simulator, i);
+        }
+        ChainedActionList list = new ChainedActionList(actions);
+        if (timeoutMillis > 0)
+        {
+            list.setTimeout(timeoutMillis, timerService);
+        }
+
+        ChainHandle[] handles = new ChainHandle[chains];
+        for (int i = 0; i < chains; i++)
+        {
+            if (i > 0 && i % BATCH == 0)
+            {
+                backend.advance(random.nextInt(maxLatencyMillis + 1));
+            }
+            Context context = new Context();
+            context.put(CHAIN, i);
+            if (i % TRACK_EVERY == 0)
+            {
+                track(context);
+            }
+            recorder.started[i] = backend.currentTimeMillis();
+            handles[i] = list.start(context, new End(recorder, i, true), new End(recorder, i, false));
+            if (random.nextDouble() < cancelRatio)
+            {
+                int victim = random.nextInt(i + 1);
+                if (handles[victim].cancel())
+                {
+                    recorder.canceled[victim] = true;
+                }
+            }
+        }
+        backend.runAll(Integer.MAX_VALUE);
+
+        int succeeded = 0;
+        for (int i = 0; i < chains; i++)
+        {
+            int ends = recorder.successes[i] + recorder.errors[i];
+            if (recorder.canceled[i])
+            {
+                report.check(ends == 0, "Canceled chain " + i + " ended " + ends + " times");
+            }
+            else if (handles[i].isTimedOut())
+            {
+                report.check(recorder.errors[i] == 1 && ends == 1, "Timed out chain " + i + " ended with "
+                        + recorder.successes[i] + " successes and " + recorder.errors[i] + " errors");
+            }
+            else if (report.check(recorder.successes[i] == 1 && ends == 1, "Chain " + i + " ended with "
+                    + recorder.successes[i] + " successes and " + recorder.errors[i] + " errors"))
+            {
+                report.check(recorder.progress[i] == length, "Chain " + i + " succeeded after "
+                        + recorder.progress[i] + " of " + length + " actions");
+                report.latency(recorder.ended[i] - recorder.started[i]);
+                succeeded++;
+            }
+        }
+        report.check(succeeded > 0, "No chain succeeded");
+        report.check(simulator.getPending() == 0, simulator.getPending() + " async calls are still pending");
+        report.check(timerService.size() == 0, timerService.size() + " timeout timers are still pending");
+
+        report.setOperations(simulator.getSubmitted());
+        report.setVirtualMillis(backend.currentTimeMillis());
+        report.setFingerprint(simulator.getFingerprint());
+    }
+
+    /**
+     * Records the progress and the outcome of the chains.
+     */
+    static final class Recorder
+    {
+        final StressReport report;
+        final VirtualTimerBackend backend;
+        final int length;
+        final int[] progress;
+        final int[] successes;
+        final int[] errors;
+        final boolean[] canceled;
+        final long[] started;
+        final long[] ended;
+
+
+        Recorder(final StressReport report, final VirtualTimerBackend backend, final int chains, final int length)
+        {
+            this.report = report;
+            this.backend = backend;
+            this.length = length;
+            this.progress = new int[chains];
+            this.successes = new int[chains];
+            this.errors = new int[chains];
+            this.canceled = new boolean[chains];
+            this.started = new long[chains];
+            this.ended = new long[chains];
+        }
+    }
+
+    /**
+     * Action which checks its position in the chain and completes after a
+     * simulated latency.
+     */
+    static final class Step extends ChainedAction
+    {
+        final Recorder recorder;
+        final AsyncSimulator simulator;
+        final int index;
+
+
+        Step(final Recorder recorder, final AsyncSimulator simulator, final int index)
+        {
+            this.recorder = recorder;
+            this.simulator = simulator;
+            this.index = index;
+        }
+
+
+        @Override
+        public void execute(final Iterator<ChainedAction> iterator, final Context context, final Command onSuccess,
+                final Command onError)
+        {
+            int chain = context.get(CHAIN);
+            recorder.report.check(recorder.progress[chain] == index, "Chain " + chain + " started action "
+                    + index + " after " + recorder.progress[chain] + " actions");
+            recorder.report.check(!recorder.canceled[chain], "Canceled chain " + chain + " started action "
+                    + index);
+            recorder.progress[chain]++;
+            simulator.complete(new Command()
+            {
+                @Override
+                public void execute()
+                {
+                    next(iterator, context, onSuccess, onError);
+                }
+            });
+        }
+    }
+
+    /**
+     * Final command of one chain.
+     */
+    static final class End implements Command
+    {
+        final Recorder recorder;
+        final int chain;
+        final boolean success;
+
+
+        End(final Recorder recorder, final int chain, final boolean success)
+        {
+            this.recorder = recorder;
+            this.chain = chain;
+            this.success = success;
+        }
+
+
+        @Override
+        public void execute()
+        {
+            if (success)
+            {
+                recorder.successes[chain]++;
+            }
+            else
+            {
+                recorder.errors[chain]++;
+            }
+            recorder.ended[chain] = recorder.backend.currentTimeMillis();
+        }
+    }
+}
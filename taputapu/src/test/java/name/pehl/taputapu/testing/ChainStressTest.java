@@ -0,0 +1,44 @@
+package name.pehl.taputapu.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Runs the {@link ChainStressScenario}. See {@link StressSettings} for the
+ * seed and the number of chains.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class ChainStressTest
+{
+    static final int LENGTH = 5;
+    static final int MIN_LATENCY_MILLIS = 1;
+    static final int MAX_LATENCY_MILLIS = 50;
+    static final double CANCEL_RATIO = 0.05;
+    static final int TIMEOUT_MILLIS = 200;
+
+
+    @Test
+    public void chains()
+    {
+        StressReport report = scenario().run();
+        assertTrue(report.toString(), report.isPassed());
+    }
+
+
+    @Test
+    public void sameSeedSameInterleaving()
+    {
+        assertEquals(scenario().run().getFingerprint(), scenario().run().getFingerprint());
+    }
+
+
+    static ChainStressScenario scenario()
+    {
+        return new ChainStressScenario(StressSettings.seed(), StressSettings.chains(), LENGTH, MIN_LATENCY_MILLIS,
+                MAX_LATENCY_MILLIS, CANCEL_RATIO, TIMEOUT_MILLIS);
+    }
+}
@@ -0,0 +1,236 @@
+package name.pehl.taputapu.testing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The result of a {@link StressScenario}: the failed checks, latency
+ * percentiles in virtual milliseconds, the elapsed real time and the number
+ * of objects which were still reachable after the scenario.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class StressReport
+{
+    /**
+     * Maximal number of failure messages which are kept. Further failures are
+     * only counted.
+     */
+    public static final int MAX_MESSAGES = 20;
+
+    private final String name;
+    private final long seed;
+    private final List<String> messages;
+    private int failures;
+    private long[] latencies;
+    private int latencyCount;
+    private boolean sorted;
+    private int operations;
+    private long realMillis;
+    private long virtualMillis;
+    private int retained;
+    private long fingerprint;
+
+
+    // ----------------------------------------------------------- constructors
+
+    public StressReport(final String name, final long seed)
+    {
+        this.name = name;
+        this.seed = seed;
+        this.messages = new ArrayList<String>();
+        this.latencies = new long[1024];
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Records a failure if <code>condition</code> is false.
+     *
+     * @param condition
+     * @param message
+     * @return <code>condition</code>
+     */
+    public boolean check(final boolean condition, final String message)
+    {
+        if (!condition)
+        {
+            failures++;
+            if (messages.size() < MAX_MESSAGES)
+            {
+                messages.add(message);
+            }
+        }
+        return condition;
+    }
+
+
+    /**
+     * Records one latency sample.
+     *
+     * @param latencyMillis
+     */
+    public void latency(final long latencyMillis)
+    {
+        if (latencyCount == latencies.length)
+        {
+            latencies = Arrays.copyOf(latencies, latencyCount * 2);
+        }
+        latencies[latencyCount] = latencyMillis;
+        latencyCount++;
+        sorted = false;
+    }
+
+
+    /**
+     * @param percentile
+     *            between 0 and 100
+     * @return the latency below or at which <code>percentile</code> percent
+     *         of the samples lie or -1 if there are no samples
+     */
+    public long getLatencyPercentile(final double percentile)
+    {
+        if (latencyCount == 0)
+        {
+            return -1;
+        }
+        if (!sorted)
+        {
+            Arrays.sort(latencies, 0, latencyCount);
+            sorted = true;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latencyCount) - 1;
+        return latencies[Math.max(0, Math.min(latencyCount - 1, index))];
+    }
+
+
+    public boolean isPassed()
+    {
+        return failures == 0;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(isPassed() ? "PASSED " : "FAILED ").append(name).append(" [seed=").append(seed)
+                .append(", operations=").append(operations).append(", real=").append(realMillis)
+                .append("ms, virtual=").append(virtualMillis).append("ms, latency p50/p99/max=")
+                .append(getLatencyPercentile(50)).append("/").append(getLatencyPercentile(99)).append("/")
+                .append(getLatencyPercentile(100)).append("ms, retained=").append(retained)
+                .append(", fingerprint=").append(Long.toHexString(fingerprint)).append("]");
+        for (String message : messages)
+        {
+            builder.append("\n    ").append(message);
+        }
+        if (failures > messages.size())
+        {
+            builder.append("\n    ... ").append(failures - messages.size()).append(" more failures");
+        }
+        return builder.toString();
+    }
+
+
+    // ------------------------------------------------------------- properties
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+
+    public int getFailures()
+    {
+        return failures;
+    }
+
+
+    public List<String> getMessages()
+    {
+        return messages;
+    }
+
+
+    public int getLatencyCount()
+    {
+        return latencyCount;
+    }
+
+
+    public int getOperations()
+    {
+        return operations;
+    }
+
+
+    public void setOperations(final int operations)
+    {
+        this.operations = operations;
+    }
+
+
+    public long getRealMillis()
+    {
+        return realMillis;
+    }
+
+
+    void setRealMillis(final long realMillis)
+    {
+        this.realMillis = realMillis;
+    }
+
+
+    public long getVirtualMillis()
+    {
+        return virtualMillis;
+    }
+
+
+    public void setVirtualMillis(final long virtualMillis)
+    {
+        this.virtualMillis = virtualMillis;
+    }
+
+
+    /**
+     * @return the number of tracked objects which could not be garbage
+     *         collected after the scenario
+     */
+    public int getRetained()
+    {
+        return retained;
+    }
+
+
+    void setRetained(final int retained)
+    {
+        this.retained = retained;
+    }
+
+
+    /**
+     * @return a hash over the order of events in the scenario. Runs with the
+     *         same seed must have the same fingerprint.
+     */
+    public long getFingerprint()
+    {
+        return fingerprint;
+    }
+
+
+    public void setFingerprint(final long fingerprint)
+    {
+        this.fingerprint = fingerprint;
+    }
+}
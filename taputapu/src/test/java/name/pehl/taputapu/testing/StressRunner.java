@@ -0,0 +1,63 @@
+package name.pehl.taputapu.testing;
+
+/**
+ * Runs the stress scenarios outside of JUnit and prints their reports:
+ *
+ * <pre>
+ * java -cp ... name.pehl.taputapu.testing.StressRunner [seed]
+ * </pre>
+ *
+ * The seed defaults to {@link StressSettings#seed()}, the sizes are taken
+ * from {@link StressSettings}. The chain scenario runs twice to verify that
+ * the same seed yields the same interleaving. Exits with status 1 if a check
+ * failed. {@link TimerStressTest} and {@link ChainStressTest} run the same
+ * scenarios as part of the build.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public final class StressRunner
+{
+    private StressRunner()
+    {
+    }
+
+
+    public static void main(final String[] args)
+    {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : StressSettings.seed();
+        boolean passed = true;
+
+        ChainStressScenario chains = new ChainStressScenario(seed, StressSettings.chains(), ChainStressTest.LENGTH,
+                ChainStressTest.MIN_LATENCY_MILLIS, ChainStressTest.MAX_LATENCY_MILLIS, ChainStressTest.CANCEL_RATIO,
+                ChainStressTest.TIMEOUT_MILLIS);
+        StressScenario[] scenarios = new StressScenario[] {timers(seed, 0), timers(seed, TimerStressTest.TICK_MILLIS),
+                chains};
+        long fingerprint = 0;
+        for (StressScenario scenario : scenarios)
+        {
+            StressReport report = scenario.run();
+            System.out.println(report);
+            passed &= report.isPassed();
+            fingerprint = report.getFingerprint();
+        }
+
+        long repeated = chains.run().getFingerprint();
+        boolean deterministic = fingerprint == repeated;
+        System.out.println((deterministic ? "PASSED " : "FAILED ") + "determinism [seed=" + seed
+                + ", fingerprints=" + Long.toHexString(fingerprint) + "/" + Long.toHexString(repeated) + "]");
+        passed &= deterministic;
+
+        if (!passed)
+        {
+            System.exit(1);
+        }
+    }
+
+
+    private static TimerStressScenario timers(final long seed, final int tickMillis)
+    {
+        return new TimerStressScenario(seed, StressSettings.timers(), TimerStressTest.MAX_DELAY_MILLIS,
+                TimerStressTest.CANCEL_RATIO, tickMillis);
+    }
+}
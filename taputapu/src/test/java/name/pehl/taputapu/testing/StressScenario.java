@@ -0,0 +1,119 @@
+package name.pehl.taputapu.testing;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for deterministic load scenarios which run on a
+ * {@link name.pehl.taputapu.timer.server.VirtualTimerBackend}. Subclasses
+ * implement {@link #execute(StressReport)} and record failed checks and
+ * latencies in the report. All random decisions must be derived from the
+ * {@linkplain #getSeed() seed}, so a failing run can be repeated exactly.
+ * <p>
+ * Objects passed to {@link #track(Object)} are held weakly. After
+ * {@link #execute(StressReport)} has returned, all tracked objects must be
+ * collectable. Those that are not are reported as
+ * {@linkplain StressReport#getRetained() retained} and fail the scenario.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public abstract class StressScenario
+{
+    private static final int GC_ATTEMPTS = 5;
+
+    private final String name;
+    private final long seed;
+    private final List<WeakReference<Object>> tracked;
+
+
+    // ----------------------------------------------------------- constructors
+
+    protected StressScenario(final String name, final long seed)
+    {
+        this.name = name;
+        this.seed = seed;
+        this.tracked = new ArrayList<WeakReference<Object>>();
+    }
+
+
+    // ------------------------------------------------------- public interface
+
+    /**
+     * Runs the scenario.
+     *
+     * @return the report
+     */
+    public final StressReport run()
+    {
+        StressReport report = new StressReport(name, seed);
+        tracked.clear();
+        long start = System.nanoTime();
+        execute(report);
+        report.setRealMillis((System.nanoTime() - start) / 1000000);
+        int retained = retained();
+        report.setRetained(retained);
+        report.check(retained == 0, retained + " tracked objects are still reachable");
+        return report;
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    /**
+     * Executes the scenario. Must not keep references to the objects passed
+     * to {@link #track(Object)} once it returns.
+     *
+     * @param report
+     */
+    protected abstract void execute(StressReport report);
+
+
+    /**
+     * Checks after the scenario that <code>object</code> can be garbage
+     * collected.
+     *
+     * @param object
+     */
+    protected void track(final Object object)
+    {
+        tracked.add(new WeakReference<Object>(object));
+    }
+
+
+    private int retained()
+    {
+        int retained = 0;
+        for (int attempt = 0; attempt < GC_ATTEMPTS; attempt++)
+        {
+            System.gc();
+            retained = 0;
+            for (WeakReference<Object> reference : tracked)
+            {
+                if (reference.get() != null)
+                {
+                    retained++;
+                }
+            }
+            if (retained == 0)
+            {
+                break;
+            }
+        }
+        tracked.clear();
+        return retained;
+    }
+}
@@ -0,0 +1,55 @@
+package name.pehl.taputapu.testing;
+
+/**
+ * Seed and sizes of the stress scenarios. The defaults can be overridden with
+ * system properties, e.g.
+ *
+ * <pre>
+ * mvn test -Dtaputapu.stress.seed=42 -Dtaputapu.stress.timers=1000000
+ * </pre>
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public final class StressSettings
+{
+    public static final String SEED = "taputapu.stress.seed";
+    public static final String TIMERS = "taputapu.stress.timers";
+    public static final String CHAINS = "taputapu.stress.chains";
+
+    static final long DEFAULT_SEED = 20111111L;
+    static final int DEFAULT_TIMERS = 100000;
+    static final int DEFAULT_CHAINS = 10000;
+
+
+    private StressSettings()
+    {
+    }
+
+
+    /**
+     * @return the value of {@value #SEED} or the default seed
+     */
+    public static long seed()
+    {
+        return Long.getLong(SEED, DEFAULT_SEED);
+    }
+
+
+    /**
+     * @return the value of {@value #TIMERS} or the default number of timers
+     */
+    public static int timers()
+    {
+        return Integer.getInteger(TIMERS, DEFAULT_TIMERS);
+    }
+
+
+    /**
+     * @return the value of {@value #CHAINS} or the default number of chains
+     */
+    public static int chains()
+    {
+        return Integer.getInteger(CHAINS, DEFAULT_CHAINS);
+    }
+}
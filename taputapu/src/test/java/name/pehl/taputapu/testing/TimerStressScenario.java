@@ -0,0 +1,212 @@
+package name.pehl.taputapu.testing;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import name.pehl.taputapu.timer.client.TimerHandle;
+import name.pehl.taputapu.timer.client.TimerMetrics;
+import name.pehl.taputapu.timer.client.TimerService;
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Schedules a large number of one-shot timers on a {@link TimerService} with
+ * random delays and cancels a random part of them while the clock moves on.
+ * Checks that
+ * <ul>
+ * <li>every timer which wasn't canceled fires exactly once and canceled
+ * timers never fire,
+ * <li>no timer fires before its due time and not later than the resolution
+ * of the service (0 ms with one task per timer, one tick in timing wheel
+ * mode),
+ * <li>timers fire in the order of their due time (within one tick in timing
+ * wheel mode),
+ * <li>the {@link TimerMetrics} agree with the observed numbers,
+ * <li>no timer or task is left over and the commands can be garbage
+ * collected.
+ * </ul>
+ * The recorded latency is the lateness of each timer.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class TimerStressScenario extends StressScenario
+{
+    /**
+     * Timers are scheduled in batches of this size. The clock moves on
+     * between batches.
+     */
+    static final int BATCH = 1000;
+
+    /**
+     * Every n-th command is tracked for garbage collection.
+     */
+    static final int TRACK_EVERY = 100;
+
+    private final int timers;
+    private final int maxDelayMillis;
+    private final double cancelRatio;
+    private final int tickMillis;
+
+
+    // ----------------------------------------------------------- constructors
+
+    /**
+     * Creates a new scenario.
+     *
+     * @param seed
+     * @param timers
+     *            the number of timers
+     * @param maxDelayMillis
+     *            the delays are between 0 and this value
+     * @param cancelRatio
+     *            the part of the timers which are canceled, between 0 and 1
+     * @param tickMillis
+     *            the tick of the timing wheel or 0 for one task per timer
+     */
+    public TimerStressScenario(final long seed, final int timers, final int maxDelayMillis,
+            final double cancelRatio, final int tickMillis)
+    {
+        super("timers (" + timers + (tickMillis > 0 ? ", tick " + tickMillis + "ms)" : ", exact)"), seed);
+        this.timers = timers;
+        this.maxDelayMillis = maxDelayMillis;
+        this.cancelRatio = cancelRatio;
+        this.tickMillis = tickMillis;
+    }
+
+
+    // --------------------------------------------------------------- internals
+
+    @Override
+    protected void execute(final StressReport report)
+    {
+        Random random = new Random(getSeed());
+        VirtualTimerBackend backend = new VirtualTimerBackend();
+        TimerService timerService = tickMillis > 0 ? new TimerService(tickMillis, backend) : new TimerService(
+                backend);
+        TimerMetrics metrics = timerService.enableMetrics();
+        Recorder recorder = new Recorder(backend, timers);
+        TimerHandle[] handles = new TimerHandle[timers];
+        boolean[] canceled = new boolean[timers];
+        int canceledCount = 0;
+
+        for (int i = 0; i < timers; i++)
+        {
+            if (i > 0 && i % BATCH == 0)
+            {
+                backend.advance(random.nextInt(tickMillis + 10));
+            }
+            int delay = random.nextInt(maxDelayMillis + 1);
+            recorder.due[i] = backend.currentTimeMillis() + delay;
+            Command command = new Fire(recorder, i);
+            if (i % TRACK_EVERY == 0)
+            {
+                track(command);
+            }
+            handles[i] = timerService.schedule(delay, command);
+            if (random.nextDouble() < cancelRatio)
+            {
+                int victim = random.nextInt(i + 1);
+                if (timerService.cancel(handles[victim]))
+                {
+                    canceled[victim] = true;
+                    canceledCount++;
+                }
+            }
+        }
+        backend.advance(maxDelayMillis + 2 * tickMillis);
+
+        int tolerance = tickMillis;
+        int firedCount = 0;
+        for (int i = 0; i < timers; i++)
+        {
+            if (canceled[i])
+            {
+                report.check(recorder.count[i] == 0, "Canceled timer " + i + " fired");
+            }
+            else if (report.check(recorder.count[i] == 1, "Timer " + i + " fired " + recorder.count[i] + " times"))
+            {
+                long late = recorder.fired[i] - recorder.due[i];
+                report.check(late >= 0, "Timer " + i + " fired " + -late + "ms early");
+                report.check(late <= tolerance, "Timer " + i + " fired " + late + "ms late");
+                report.latency(late);
+                firedCount++;
+            }
+        }
+        for (int k = 1; k < recorder.size; k++)
+        {
+            int previous = recorder.order[k - 1];
+            int current = recorder.order[k];
+            report.check(recorder.due[current] >= recorder.due[previous] - tolerance, "Timer " + current
+                    + " (due " + recorder.due[current] + ") fired after timer " + previous + " (due "
+                    + recorder.due[previous] + ")");
+        }
+
+        TimerMetrics.Snapshot snapshot = metrics.snapshot();
+        report.check(snapshot.getScheduled() == timers, "Metrics report " + snapshot.getScheduled()
+                + " scheduled timers instead of " + timers);
+        report.check(snapshot.getCanceled() == canceledCount, "Metrics report " + snapshot.getCanceled()
+                + " canceled timers instead of " + canceledCount);
+        report.check(snapshot.getFired() == firedCount, "Metrics report " + snapshot.getFired()
+                + " fired timers instead of " + firedCount);
+        report.check(timerService.size() == 0, timerService.size() + " timers are still pending");
+        report.check(backend.size() == 0, backend.size() + " backend tasks are still scheduled");
+
+        report.setOperations(timers);
+        report.setVirtualMillis(backend.currentTimeMillis());
+        report.setFingerprint(Arrays.hashCode(recorder.order));
+    }
+
+    /**
+     * Records the fire times and the fire order.
+     */
+    static final class Recorder
+    {
+        final VirtualTimerBackend backend;
+        final long[] due;
+        final long[] fired;
+        final int[] count;
+        final int[] order;
+        int size;
+
+
+        Recorder(final VirtualTimerBackend backend, final int timers)
+        {
+            this.backend = backend;
+            this.due = new long[timers];
+            this.fired = new long[timers];
+            this.count = new int[timers];
+            this.order = new int[timers];
+        }
+    }
+
+    /**
+     * Command of one timer.
+     */
+    static final class Fire implements Command
+    {
+        final Recorder recorder;
+        final int index;
+
+
+        Fire(final Recorder recorder, final int index)
+        {
+            this.recorder = recorder;
+            this.index = index;
+        }
+
+
+        @Override
+        public void execute()
+        {
+            recorder.fired[index] = recorder.backend.currentTimeMillis();
+            recorder.count[index]++;
+            if (recorder.size < recorder.order.length)
+            {
+                recorder.order[recorder.size] = index;
+                recorder.size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package name.pehl.taputapu.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Runs the {@link TimerStressScenario} with one task per timer and in timing
+ * wheel mode. See {@link StressSettings} for the seed and the number of
+ * timers.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class TimerStressTest
+{
+    static final int MAX_DELAY_MILLIS = 10000;
+    static final double CANCEL_RATIO = 0.1;
+    static final int TICK_MILLIS = 10;
+
+
+    @Test
+    public void exactTimers()
+    {
+        StressReport report = scenario(0).run();
+        assertTrue(report.toString(), report.isPassed());
+    }
+
+
+    @Test
+    public void timingWheelTimers()
+    {
+        StressReport report = scenario(TICK_MILLIS).run();
+        assertTrue(report.toString(), report.isPassed());
+    }
+
+
+    @Test
+    public void sameSeedSameOrder()
+    {
+        assertEquals(scenario(TICK_MILLIS).run().getFingerprint(), scenario(TICK_MILLIS).run().getFingerprint());
+    }
+
+
+    static TimerStressScenario scenario(final int tickMillis)
+    {
+        return new TimerStressScenario(StressSettings.seed(), StressSettings.timers(), MAX_DELAY_MILLIS,
+                CANCEL_RATIO, tickMillis);
+    }
+}
@@ -0,0 +1,59 @@
+package name.pehl.taputapu.timer.client;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the bucket bounds of {@link Histogram}.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class HistogramTest
+{
+    @Test
+    public void maxBoundIsTheBoundOfTheLastBucketButOne()
+    {
+        assertEquals(Histogram.getUpperBound(Histogram.BUCKETS - 2), Histogram.MAX_BOUND);
+        assertEquals(Long.MAX_VALUE, Histogram.getUpperBound(Histogram.BUCKETS - 1));
+    }
+
+
+    @Test
+    public void valuesAboveMaxBoundGoToTheLastBucket()
+    {
+        Histogram histogram = new Histogram();
+        histogram.record(Histogram.MAX_BOUND);
+        histogram.record(Histogram.MAX_BOUND + 1);
+
+        assertEquals(1, histogram.getCount(Histogram.BUCKETS - 2));
+        assertEquals(1, histogram.getCount(Histogram.BUCKETS - 1));
+        assertEquals(Histogram.MAX_BOUND, histogram.getPercentile(50));
+        assertEquals(Histogram.MAX_BOUND + 1, histogram.getPercentile(100));
+    }
+
+
+    @Test
+    public void valuesAreCountedInTheirBuckets()
+    {
+        Histogram histogram = new Histogram();
+        long[] values = {-5, 0, 1, 2, 3, 4, 5};
+        int[] buckets = {0, 0, 1, 2, 3, 3, 4};
+        for (long value : values)
+        {
+            histogram.record(value);
+        }
+
+        int[] counts = new int[Histogram.BUCKETS];
+        for (int bucket : buckets)
+        {
+            counts[bucket]++;
+        }
+        for (int bucket = 0; bucket < Histogram.BUCKETS; bucket++)
+        {
+            assertEquals("Bucket " + bucket, counts[bucket], histogram.getCount(bucket));
+        }
+        assertEquals(5, histogram.getMax());
+    }
+}
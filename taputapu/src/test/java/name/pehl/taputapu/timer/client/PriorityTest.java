@@ -0,0 +1,80 @@
+package name.pehl.taputapu.timer.client;
+
+import static org.junit.Assert.assertEquals;
+
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests how {@link Priority#IMMEDIATE} commands postpone
+ * {@link Priority#BACKGROUND} commands.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class PriorityTest
+{
+    static final int THRESHOLD = 100;
+
+    VirtualTimerBackend backend;
+    TimerService timerService;
+
+
+    @Before
+    public void setUp()
+    {
+        backend = new VirtualTimerBackend();
+        timerService = new TimerService(backend);
+        timerService.setIdleThreshold(THRESHOLD);
+    }
+
+
+    @Test
+    public void schedulingImmediateCommandIsNoActivity()
+    {
+        Counter immediate = new Counter();
+        Counter background = new Counter();
+        timerService.schedule(500, Priority.IMMEDIATE, immediate);
+        timerService.runWhenIdle(background);
+        backend.advance(1);
+
+        assertEquals(1, background.count);
+        assertEquals(0, immediate.count);
+    }
+
+
+    @Test
+    public void executingImmediateCommandIsActivity()
+    {
+        Counter immediate = new Counter();
+        Counter background = new Counter();
+        timerService.schedule(500, Priority.IMMEDIATE, immediate);
+        backend.advance(500);
+        assertEquals(1, immediate.count);
+
+        timerService.runWhenIdle(background);
+        backend.advance(THRESHOLD - 1);
+        assertEquals(0, background.count);
+        backend.advance(1);
+        assertEquals(1, background.count);
+    }
+
+    /**
+     * Counts its executions.
+     */
+    static class Counter implements Command
+    {
+        int count;
+
+
+        @Override
+        public void execute()
+        {
+            count++;
+        }
+    }
+}
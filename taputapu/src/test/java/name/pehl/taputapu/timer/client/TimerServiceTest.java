@@ -0,0 +1,117 @@
+package name.pehl.taputapu.timer.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests that {@link TimerService} releases fired and canceled timers.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class TimerServiceTest
+{
+    static final int TIMERS = 1000000;
+    static final int LIVE = 1000;
+
+    static final Command NOOP = new Command()
+    {
+        @Override
+        public void execute()
+        {
+        }
+    };
+
+
+    @Test
+    public void scheduleAndCancelDoesNotLeak()
+    {
+        VirtualTimerBackend backend = new VirtualTimerBackend();
+        churn(new TimerService(backend), backend);
+    }
+
+
+    @Test
+    public void scheduleAndCancelDoesNotLeakInTimingWheelMode()
+    {
+        VirtualTimerBackend backend = new VirtualTimerBackend();
+        churn(new TimerService(10, backend), backend);
+    }
+
+
+    @Test
+    public void firedTimersAreRemoved()
+    {
+        VirtualTimerBackend backend = new VirtualTimerBackend();
+        TimerService timerService = new TimerService(backend);
+        TimerHandle handle = timerService.schedule(100, NOOP);
+        assertEquals(1, timerService.size());
+
+        backend.advance(100);
+        assertEquals(0, timerService.size());
+        assertEquals(TimerHandle.State.FIRED, handle.getState());
+        assertFalse(timerService.cancel(handle));
+    }
+
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void detachedHandleMatchesNoTimer()
+    {
+        TimerService timerService = new TimerService(new VirtualTimerBackend());
+        timerService.schedule(100, NOOP);
+        TimerHandle handle = new TimerHandle();
+
+        assertFalse(handle.equals(new TimerHandle()));
+        assertEquals(TimerHandle.State.CANCELED, handle.getState());
+        assertFalse(timerService.cancel(handle));
+        assertEquals(1, timerService.size());
+    }
+
+
+    /**
+     * Schedules {@link #TIMERS} timers in windows of {@link #LIVE} timers.
+     * Every second timer of the second half of a window cancels a timer of
+     * the first half, the remaining timers fire at the end of the window.
+     */
+    private void churn(final TimerService timerService, final VirtualTimerBackend backend)
+    {
+        TimerHandle[] window = new TimerHandle[LIVE];
+        int peak = 0;
+        for (int i = 0; i < TIMERS; i++)
+        {
+            int position = i % LIVE;
+            window[position] = timerService.schedule(1, NOOP);
+            if (position >= LIVE / 2 && i % 2 == 0)
+            {
+                assertTrue(timerService.cancel(window[position - LIVE / 2]));
+            }
+            peak = Math.max(peak, timerService.size());
+            if (position == LIVE - 1)
+            {
+                backend.advance(10);
+                assertEquals(0, timerService.size());
+            }
+        }
+
+        TimerRegistry registry = timerService.getRegistry();
+        assertEquals(0, timerService.size());
+        assertEquals(0, backend.size());
+        assertTrue("Peak of " + peak + " live timers", peak <= LIVE);
+        assertTrue("Registry uses " + registry.top() + " slots for " + peak + " live timers", registry.top() <= peak);
+        assertTrue("Registry capacity " + registry.capacity() + " for " + peak + " live timers",
+                registry.capacity() < 2 * peak);
+        for (int slot = 0; slot < registry.top(); slot++)
+        {
+            assertNull(registry.command(slot));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package name.pehl.taputapu.timer.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import name.pehl.taputapu.timer.server.VirtualTimerBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gwt.user.client.Command;
+
+/**
+ * Tests the resolution of {@link TimerService} in timing wheel mode.
+ *
+ * @author $Author$
+ * @version $Date$ $Revision$
+ */
+public class TimingWheelTest
+{
+    static final int TICK = 10;
+
+    VirtualTimerBackend backend;
+    TimerService timerService;
+
+
+    @Before
+    public void setUp()
+    {
+        backend = new VirtualTimerBackend();
+        timerService = new TimerService(TICK, backend);
+    }
+
+
+    @Test
+    public void scheduledMidTickNeverFiresEarly()
+    {
+        for (int offset = 0; offset < 2 * TICK; offset++)
+        {
+            for (int delay = 0; delay <= 3 * TICK; delay++)
+            {
+                setUp();
+                // keeps the ticker running from time 0 on
+                timerService.schedule(100 * TICK, new Recorder());
+                backend.advance(offset);
+                Recorder recorder = new Recorder();
+                timerService.schedule(delay, recorder);
+                backend.advance(delay + TICK);
+
+                String timer = "offset " + offset + ", delay " + delay;
+                assertEquals(timer, 1, recorder.times.size());
+                long late = recorder.times.get(0) - (offset + delay);
+                assertTrue(timer + " fired " + -late + "ms early", late >= 0);
+                assertTrue(timer + " fired " + late + "ms late", late <= TICK);
+            }
+        }
+    }
+
+
+    @Test
+    public void tickerStaysOnTickBoundaries()
+    {
+        backend.advance(3);
+        Recorder recorder = new Recorder();
+        timerService.repeat(2 * TICK, recorder);
+        backend.advance(20 * TICK);
+
+        assertTrue(recorder.times.size() >= 9);
+        for (long time : recorder.times)
+        {
+            assertEquals("Fired at " + time, 0, time % TICK);
+        }
+    }
+
+
+    @Test
+    public void restartedTickerStaysOnTickBoundaries()
+    {
+        Recorder recorder = new Recorder();
+        timerService.schedule(TICK, recorder);
+        backend.advance(TICK);
+        backend.advance(7);
+        timerService.schedule(5, recorder);
+        backend.advance(2 * TICK);
+
+        // due at 22, the next boundary is 30
+        assertEquals(2, recorder.times.size());
+        assertEquals(3 * TICK, (long) recorder.times.get(1));
+    }
+
+    /**
+     * Records the times of its executions.
+     */
+    class Recorder implements Command
+    {
+        final List<Long> times = new ArrayList<Long>();
+
+
+        @Override
+        public void execute()
+        {
+            times.add(backend.currentTimeMillis());
+        }
+    }
+}